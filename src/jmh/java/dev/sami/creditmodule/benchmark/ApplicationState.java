@@ -0,0 +1,57 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanInstallmentService;
+import dev.sami.creditmodule.service.LoanService;
+import java.math.BigDecimal;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application on an embedded in-memory H2 database, shared by all threads of a trial, with one
+ * customer whose credit limit is large enough to never reject a benchmark loan.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+  static final BigDecimal LOAN_AMOUNT = BigDecimal.valueOf(1200);
+
+  static final double INTEREST_RATE = 0.2;
+
+  ConfigurableApplicationContext context;
+
+  LoanService loanService;
+
+  LoanInstallmentService loanInstallmentService;
+
+  Long customerId;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    loanService = context.getBean(LoanService.class);
+    loanInstallmentService = context.getBean(LoanInstallmentService.class);
+    customerId = context.getBean(CustomerRepository.class)
+                        .save(Customer.builder()
+                                      .name("Benchmark")
+                                      .surname("Customer")
+                                      .creditLimit(new BigDecimal("1000000000000000"))
+                                      .usedCreditLimit(BigDecimal.ZERO)
+                                      .build())
+                        .getId();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  LoanDTO createLoan(int numberOfInstallments) {
+    return loanService.createLoan(customerId, LOAN_AMOUNT, INTEREST_RATE, numberOfInstallments);
+  }
+}
@@ -0,0 +1,51 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.CreditModuleApplication;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application on a fresh in-memory H2 database for a benchmark trial, without a web server
+ * unless the benchmark drives it over HTTP. Properties are passed as command line arguments so they
+ * override {@code application.properties}.
+ */
+final class BenchmarkApplication {
+
+  private BenchmarkApplication() {
+  }
+
+  static ConfigurableApplicationContext start(String... properties) {
+    return start(WebApplicationType.NONE, properties);
+  }
+
+  /**
+   * Starts the application with its web server on a random port, read back with {@link #port}.
+   */
+  static ConfigurableApplicationContext startServer(String... properties) {
+    List<String> serverProperties = new ArrayList<>(List.of(properties));
+    serverProperties.add("server.port=0");
+    return start(WebApplicationType.SERVLET, serverProperties.toArray(String[]::new));
+  }
+
+  static int port(ConfigurableApplicationContext context) {
+    return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+  }
+
+  private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+    // devtools decides whether to restart in a new class loader before it reads the command line, so it has
+    // to be disabled by a system property when started from a main method
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    List<String> args = new ArrayList<>(List.of("--spring.devtools.restart.enabled=false",
+                                                "--spring.main.banner-mode=off",
+                                                "--logging.level.root=WARN"));
+    for (String property : properties) {
+      args.add("--" + property);
+    }
+    return new SpringApplicationBuilder(CreditModuleApplication.class)
+        .web(webApplicationType)
+        .run(args.toArray(String[]::new));
+  }
+}
@@ -0,0 +1,87 @@
+package dev.sami.creditmodule.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Blocking HTTP/1.1 client of the customer and loan endpoints, used by the benchmarks and the load test that
+ * drive the application over HTTP. Every call fails with an {@link IllegalStateException} on a non-2xx
+ * response.
+ */
+final class CreditApiClient {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+  private final String baseUrl;
+
+  CreditApiClient(int port) {
+    this.baseUrl = "http://localhost:" + port + "/api";
+  }
+
+  /**
+   * @return the created loan, see {@link #id}
+   */
+  String createLoan(long customerId, BigDecimal amount, double interestRate, int numberOfInstallments) {
+    return post("/loans?customerId=" + customerId + "&amount=" + amount + "&interestRate=" + interestRate
+                + "&numberOfInstallments=" + numberOfInstallments);
+  }
+
+  String payLoan(long loanId, BigDecimal amount) {
+    return post("/loans/" + loanId + "/pay?amount=" + amount);
+  }
+
+  String listInstallments(long loanId) {
+    return get("/loans/" + loanId + "/installments");
+  }
+
+  String listLoans(long customerId) {
+    return get("/loans?customerId=" + customerId);
+  }
+
+  String getCustomer(long customerId) {
+    return get("/customers/" + customerId);
+  }
+
+  private String get(String path) {
+    return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+  }
+
+  private String post(String path) {
+    return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).POST(HttpRequest.BodyPublishers.noBody()).build());
+  }
+
+  private String send(HttpRequest request) {
+    HttpResponse<String> response;
+    try {
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for " + request.uri(), e);
+    }
+    if (response.statusCode() / 100 != 2) {
+      throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+    }
+    return response.body();
+  }
+
+  /**
+   * @return the {@code id} of a customer or loan response
+   */
+  static long id(String json) {
+    try {
+      return OBJECT_MAPPER.readTree(json).get("id").asLong();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
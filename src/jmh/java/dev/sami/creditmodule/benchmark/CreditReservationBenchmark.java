@@ -0,0 +1,72 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.CustomerService;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Reservations per second on a single hot customer, through the conditional UPDATE ("jpa") and
+ * through the in-memory {@code CreditLimitLedger} ("ledger").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class CreditReservationBenchmark {
+
+  private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+  @Param({"jpa", "ledger"})
+  private String mode;
+
+  private ConfigurableApplicationContext context;
+
+  private CustomerService customerService;
+
+  private Long customerId;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkApplication.start("credit-module.ledger.enabled=" + "ledger".equals(mode));
+    customerService = context.getBean(CustomerService.class);
+    customerId = context.getBean(CustomerRepository.class)
+                        .save(Customer.builder()
+                                      .name("Hot")
+                                      .surname("Merchant")
+                                      .creditLimit(BigDecimal.valueOf(1_000_000_000))
+                                      .usedCreditLimit(BigDecimal.ZERO)
+                                      .build())
+                        .getId();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public boolean reserveAndRelease() {
+    boolean reserved = customerService.reserveCredit(customerId, AMOUNT);
+    customerService.releaseCredit(customerId, AMOUNT);
+    return reserved;
+  }
+}
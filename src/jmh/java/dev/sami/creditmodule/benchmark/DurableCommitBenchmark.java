@@ -0,0 +1,107 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Commit latency and throughput of loan origination and payment on the in-memory database against the
+ * file-backed database of the {@code durable} profile, once writing every commit to the file
+ * ({@code file}, the profile's default) and once with H2's default 500 ms write delay
+ * ({@code file-write-delay}). Each operation commits one transaction. The files are created under
+ * {@code target/jmh-durable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DurableCommitBenchmark {
+
+  private static final int NUMBER_OF_INSTALLMENTS = 12;
+
+  @Param({"memory", "file", "file-write-delay"})
+  private String database;
+
+  private ConfigurableApplicationContext context;
+
+  private LoanService loanService;
+
+  private Long customerId;
+
+  @Setup
+  public void setUp() {
+    String path = "credit-module.h2.path=./target/jmh-durable/credit-module-" + System.nanoTime();
+    context = switch (database) {
+      case "memory" -> BenchmarkApplication.start();
+      case "file" -> BenchmarkApplication.start("spring.profiles.active=durable", path);
+      case "file-write-delay" -> BenchmarkApplication.start("spring.profiles.active=durable", path,
+                                                            "credit-module.h2.write-delay-ms=500");
+      default -> throw new IllegalArgumentException("Unknown database " + database);
+    };
+    loanService = context.getBean(LoanService.class);
+    customerId = context.getBean(CustomerRepository.class)
+                        .save(Customer.builder()
+                                      .name("Durable")
+                                      .surname("Customer")
+                                      .creditLimit(new BigDecimal("1000000000000000"))
+                                      .usedCreditLimit(BigDecimal.ZERO)
+                                      .build())
+                        .getId();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public LoanDTO createLoan() {
+    return loanService.createLoan(customerId, ApplicationState.LOAN_AMOUNT, ApplicationState.INTEREST_RATE,
+                                  NUMBER_OF_INSTALLMENTS);
+  }
+
+  @Benchmark
+  public PaymentResultDTO payLoan(UnpaidLoan unpaidLoan) {
+    return loanService.payLoan(unpaidLoan.loanId, unpaidLoan.installmentAmount);
+  }
+
+  /**
+   * A freshly created loan per invocation, created in an untimed setup.
+   */
+  @State(Scope.Thread)
+  public static class UnpaidLoan {
+
+    private Long loanId;
+
+    private BigDecimal installmentAmount;
+
+    @Setup(Level.Invocation)
+    public void createLoan(DurableCommitBenchmark benchmark) {
+      LoanDTO loan = benchmark.createLoan();
+      loanId = loan.getId();
+      installmentAmount =
+          loan.getLoanAmount().divide(BigDecimal.valueOf(NUMBER_OF_INSTALLMENTS), RoundingMode.UP);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.PaidInstallmentsDTO;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.repository.LoanRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code LoanInstallmentService.payInstallments} settling every installment of a fresh loan in one
+ * payment, so the cost of settling 6 to 24 installments can be compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InstallmentSettlementBenchmark {
+
+  private static final LocalDate PAYABLE_BEFORE = LocalDate.now().plusYears(3);
+
+  @Param({"6", "12", "24"})
+  private int numberOfInstallments;
+
+  private Loan loan;
+
+  private BigDecimal amount;
+
+  @Setup(Level.Invocation)
+  public void createLoan(ApplicationState application) {
+    Long loanId = application.createLoan(numberOfInstallments).getId();
+    loan = application.context.getBean(LoanRepository.class).findById(loanId).orElseThrow();
+    amount = loan.getInstallmentAmount().multiply(BigDecimal.valueOf(numberOfInstallments));
+  }
+
+  @Benchmark
+  public PaidInstallmentsDTO payInstallments(ApplicationState application) {
+    return application.loanInstallmentService.payInstallments(loan, amount, PAYABLE_BEFORE);
+  }
+}
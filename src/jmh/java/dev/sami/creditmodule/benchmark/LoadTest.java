@@ -0,0 +1,367 @@
+package dev.sami.creditmodule.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanService;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Open-loop HTTP load test of the customer and loan endpoints. Starts the application on an embedded
+ * in-memory H2 database, seeds customers with one loan each, then sends a weighted mix of requests at a
+ * fixed rate from a pool of client threads, first for a warmup that is not reported and then for the
+ * measured run. Run it with the {@code benchmark} profile:
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec@load -Dload.args="--rate=500 --concurrency=64 --duration=30"
+ * </pre>
+ *
+ * <p>Requests are scheduled every {@code 1 / rate} seconds whether or not earlier ones have completed, and
+ * latency is measured from the scheduled time, so time spent waiting for a free client thread counts and a
+ * stalled server is not hidden by clients that stop sending (coordinated omission). Latencies are recorded
+ * in HdrHistograms per operation; throughput and p50/p90/p99/p99.9 per operation are printed and written
+ * as JSON to {@code --report}.
+ *
+ * <p>Options, as {@code --name=value}: {@code customers}, {@code concurrency} (client threads), {@code rate}
+ * (requests per second), {@code warmup} and {@code duration} (seconds), {@code mix} (operation weights,
+ * e.g. {@code createLoan=1,payLoan=2}) and {@code report} (file). Any other {@code --key=value} is passed to
+ * the application as a property, e.g. {@code --spring.profiles.active=virtual-threads}.
+ */
+public final class LoadTest {
+
+  private static final BigDecimal LOAN_AMOUNT = ApplicationState.LOAN_AMOUNT;
+
+  private static final int NUMBER_OF_INSTALLMENTS = 24;
+
+  /**
+   * One installment of a seeded or created loan: 1200 with 20% interest over 24 installments.
+   */
+  private static final BigDecimal INSTALLMENT_AMOUNT = new BigDecimal("60.00");
+
+  private static final int SEED_BATCH = 1000;
+
+  private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+  enum Operation {
+    CREATE_LOAN("createLoan", "POST /api/loans"),
+    PAY_LOAN("payLoan", "POST /api/loans/{id}/pay"),
+    LIST_INSTALLMENTS("listInstallments", "GET /api/loans/{id}/installments"),
+    LIST_LOANS("listLoans", "GET /api/loans?customerId="),
+    GET_CUSTOMER("getCustomer", "GET /api/customers/{id}");
+
+    private final String option;
+
+    private final String endpoint;
+
+    Operation(String option, String endpoint) {
+      this.option = option;
+      this.endpoint = endpoint;
+    }
+
+    static Operation of(String option) {
+      for (Operation operation : values()) {
+        if (operation.option.equals(option)) {
+          return operation;
+        }
+      }
+      throw new IllegalArgumentException("Unknown operation " + option);
+    }
+  }
+
+  private final Options options;
+
+  private final CreditApiClient apiClient;
+
+  private final long[] customerIds;
+
+  /**
+   * Loans to pay and read: the seeded loans at first, overwritten at random slots by created loans.
+   */
+  private final AtomicLongArray loanIds;
+
+  private LoadTest(Options options, CreditApiClient apiClient, long[] customerIds, long[] loanIds) {
+    this.options = options;
+    this.apiClient = apiClient;
+    this.customerIds = customerIds;
+    this.loanIds = new AtomicLongArray(loanIds);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    ConfigurableApplicationContext context = BenchmarkApplication.startServer(options.properties.toArray(String[]::new));
+    try {
+      long[] customerIds = seedCustomers(context, options.customers);
+      long[] loanIds = seedLoans(context, customerIds);
+      LoadTest loadTest = new LoadTest(options, new CreditApiClient(BenchmarkApplication.port(context)), customerIds,
+                                       loanIds);
+
+      loadTest.run(options.warmupSeconds);
+      Run run = loadTest.run(options.durationSeconds);
+
+      Map<String, Object> report = loadTest.report(run);
+      ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+      String json = objectMapper.writeValueAsString(report);
+      Path reportFile = Path.of(options.report);
+      if (reportFile.getParent() != null) {
+        Files.createDirectories(reportFile.getParent());
+      }
+      Files.writeString(reportFile, json);
+      System.out.println(json);
+      System.out.println("Report written to " + reportFile.toAbsolutePath());
+    } finally {
+      context.close();
+    }
+  }
+
+  private static long[] seedCustomers(ConfigurableApplicationContext context, int customers) {
+    CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+    long[] customerIds = new long[customers];
+    for (int first = 0; first < customers; first += SEED_BATCH) {
+      List<Customer> batch = new ArrayList<>();
+      for (int i = first; i < Math.min(customers, first + SEED_BATCH); i++) {
+        batch.add(Customer.builder()
+                          .name("Load")
+                          .surname("Customer " + i)
+                          .creditLimit(new BigDecimal("1000000000000000"))
+                          .usedCreditLimit(BigDecimal.ZERO)
+                          .build());
+      }
+      List<Customer> saved = customerRepository.saveAll(batch);
+      for (int i = 0; i < saved.size(); i++) {
+        customerIds[first + i] = saved.get(i).getId();
+      }
+    }
+    return customerIds;
+  }
+
+  private static long[] seedLoans(ConfigurableApplicationContext context, long[] customerIds) {
+    LoanService loanService = context.getBean(LoanService.class);
+    long[] loanIds = new long[customerIds.length];
+    for (int first = 0; first < customerIds.length; first += SEED_BATCH) {
+      List<LoanApplicationDTO> applications = new ArrayList<>();
+      for (int i = first; i < Math.min(customerIds.length, first + SEED_BATCH); i++) {
+        applications.add(new LoanApplicationDTO(customerIds[i], LOAN_AMOUNT, ApplicationState.INTEREST_RATE,
+                                                NUMBER_OF_INSTALLMENTS));
+      }
+      var results = loanService.createLoans(applications);
+      for (int i = 0; i < results.size(); i++) {
+        loanIds[first + i] = results.get(i).getLoan().getId();
+      }
+    }
+    return loanIds;
+  }
+
+  /**
+   * Sends requests at the configured rate for {@code seconds} and waits for all of them to complete.
+   */
+  private Run run(int seconds) throws InterruptedException {
+    Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      stats.put(operation, new Stats());
+    }
+    ExecutorService clients = Executors.newFixedThreadPool(options.concurrency);
+    long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+    long durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+    long start = System.nanoTime();
+    for (long request = 0; request * periodNanos < durationNanos; request++) {
+      long scheduled = start + request * periodNanos;
+      long delay = scheduled - System.nanoTime();
+      if (delay > 0) {
+        LockSupport.parkNanos(delay);
+      }
+      Operation operation = options.nextOperation();
+      clients.execute(() -> send(operation, scheduled, stats.get(operation)));
+    }
+    clients.shutdown();
+    if (!clients.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      clients.shutdownNow();
+      throw new IllegalStateException("Requests did not complete within " + DRAIN_TIMEOUT_SECONDS + " s");
+    }
+    return new Run(stats, System.nanoTime() - start);
+  }
+
+  private void send(Operation operation, long scheduled, Stats stats) {
+    try {
+      execute(operation);
+      stats.latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+    } catch (RuntimeException e) {
+      stats.errors.incrementAndGet();
+    }
+  }
+
+  private void execute(Operation operation) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long customerId = customerIds[random.nextInt(customerIds.length)];
+    int loanSlot = random.nextInt(loanIds.length());
+    switch (operation) {
+      case CREATE_LOAN -> {
+        String loan = apiClient.createLoan(customerId, LOAN_AMOUNT, ApplicationState.INTEREST_RATE,
+                                           NUMBER_OF_INSTALLMENTS);
+        loanIds.set(loanSlot, CreditApiClient.id(loan));
+      }
+      case PAY_LOAN -> apiClient.payLoan(loanIds.get(loanSlot), INSTALLMENT_AMOUNT);
+      case LIST_INSTALLMENTS -> apiClient.listInstallments(loanIds.get(loanSlot));
+      case LIST_LOANS -> apiClient.listLoans(customerId);
+      case GET_CUSTOMER -> apiClient.getCustomer(customerId);
+    }
+  }
+
+  private Map<String, Object> report(Run run) {
+    double elapsedSeconds = run.elapsedNanos / 1e9;
+    Map<String, Object> target = new LinkedHashMap<>();
+    target.put("rate", options.rate);
+    target.put("concurrency", options.concurrency);
+    target.put("durationSeconds", options.durationSeconds);
+    target.put("warmupSeconds", options.warmupSeconds);
+    target.put("customers", options.customers);
+    target.put("mix", options.mix);
+    target.put("properties", options.properties);
+
+    Map<String, Object> operations = new LinkedHashMap<>();
+    Histogram total = new Histogram(3);
+    long totalErrors = 0;
+    for (Map.Entry<Operation, Stats> entry : run.stats.entrySet()) {
+      Histogram latency = entry.getValue().latencyMicros.copy();
+      long errors = entry.getValue().errors.get();
+      if (latency.getTotalCount() + errors == 0) {
+        continue;
+      }
+      Map<String, Object> operation = new LinkedHashMap<>();
+      operation.put("endpoint", entry.getKey().endpoint);
+      operation.putAll(summary(latency, errors, elapsedSeconds));
+      operations.put(entry.getKey().option, operation);
+      total.add(latency);
+      totalErrors += errors;
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("target", target);
+    report.put("elapsedSeconds", round(elapsedSeconds));
+    report.put("operations", operations);
+    report.put("total", summary(total, totalErrors, elapsedSeconds));
+    return report;
+  }
+
+  private static Map<String, Object> summary(Histogram latencyMicros, long errors, double elapsedSeconds) {
+    Map<String, Object> latency = new LinkedHashMap<>();
+    latency.put("mean", round(latencyMicros.getMean() / 1000));
+    for (double percentile : new double[] {50, 90, 99, 99.9}) {
+      latency.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : percentile),
+                  round(latencyMicros.getValueAtPercentile(percentile) / 1000.0));
+    }
+    latency.put("max", round(latencyMicros.getMaxValue() / 1000.0));
+
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("requests", latencyMicros.getTotalCount());
+    summary.put("errors", errors);
+    summary.put("throughputPerSecond", round(latencyMicros.getTotalCount() / elapsedSeconds));
+    summary.put("latencyMillis", latency);
+    return summary;
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 1000) / 1000.0;
+  }
+
+  private record Run(Map<Operation, Stats> stats, long elapsedNanos) {
+  }
+
+  private static final class Stats {
+
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+
+    private final AtomicLong errors = new AtomicLong();
+  }
+
+  private static final class Options {
+
+    private int customers = 1000;
+
+    private int concurrency = 64;
+
+    private int rate = 500;
+
+    private int warmupSeconds = 10;
+
+    private int durationSeconds = 30;
+
+    private String report = "target/load-report.json";
+
+    private final Map<String, Integer> mix = new LinkedHashMap<>();
+
+    private Options() {
+      mix.put("createLoan", 1);
+      mix.put("payLoan", 2);
+      mix.put("listInstallments", 4);
+      mix.put("listLoans", 2);
+      mix.put("getCustomer", 1);
+    }
+
+    private final List<String> properties = new ArrayList<>();
+
+    private Operation[] weightedOperations;
+
+    static Options parse(String[] args) {
+      Options options = new Options();
+      for (String arg : args) {
+        int separator = arg.indexOf('=');
+        if (!arg.startsWith("--") || separator < 0) {
+          throw new IllegalArgumentException("Expected --name=value but got " + arg);
+        }
+        String name = arg.substring(2, separator);
+        String value = arg.substring(separator + 1);
+        switch (name) {
+          case "customers" -> options.customers = Integer.parseInt(value);
+          case "concurrency" -> options.concurrency = Integer.parseInt(value);
+          case "rate" -> options.rate = Integer.parseInt(value);
+          case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+          case "duration" -> options.durationSeconds = Integer.parseInt(value);
+          case "report" -> options.report = value;
+          case "mix" -> {
+            options.mix.clear();
+            for (String weight : value.split(",")) {
+              String[] parts = weight.split("=");
+              options.mix.put(Operation.of(parts[0].trim()).option, Integer.parseInt(parts[1].trim()));
+            }
+          }
+          default -> options.properties.add(arg.substring(2));
+        }
+      }
+      List<Operation> weighted = new ArrayList<>();
+      options.mix.forEach((option, weight) -> {
+        for (int i = 0; i < weight; i++) {
+          weighted.add(Operation.of(option));
+        }
+      });
+      if (weighted.isEmpty() || options.customers <= 0 || options.rate <= 0 || options.concurrency <= 0) {
+        throw new IllegalArgumentException("customers, rate, concurrency and the mix must be positive");
+      }
+      options.weightedOperations = weighted.toArray(Operation[]::new);
+      return options;
+    }
+
+    Operation nextOperation() {
+      return weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+    }
+  }
+}
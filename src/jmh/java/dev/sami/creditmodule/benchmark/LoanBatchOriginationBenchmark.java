@@ -0,0 +1,61 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Originating a burst of loans through {@code LoanService.createLoans} against the same burst sent
+ * one by one through {@code createLoan}, the path behind the single-loan endpoint. One operation is
+ * one whole burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanBatchOriginationBenchmark {
+
+  private static final int NUMBER_OF_INSTALLMENTS = 12;
+
+  @Param({"100", "1000"})
+  private int batchSize;
+
+  private List<LoanApplicationDTO> applications;
+
+  @Setup
+  public void setUp(ApplicationState application) {
+    applications = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      applications.add(new LoanApplicationDTO(application.customerId, ApplicationState.LOAN_AMOUNT,
+                                              ApplicationState.INTEREST_RATE, NUMBER_OF_INSTALLMENTS));
+    }
+  }
+
+  @Benchmark
+  public List<LoanBatchResultDTO> batch(ApplicationState application) {
+    return application.loanService.createLoans(applications);
+  }
+
+  @Benchmark
+  public void oneByOne(ApplicationState application, Blackhole blackhole) {
+    for (int i = 0; i < batchSize; i++) {
+      blackhole.consume(application.createLoan(NUMBER_OF_INSTALLMENTS));
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code LoanService.createLoan} for every allowed installment count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanOriginationBenchmark {
+
+  @Param({"6", "9", "12", "24"})
+  private int numberOfInstallments;
+
+  @Benchmark
+  public LoanDTO createLoan(ApplicationState application) {
+    return application.createLoan(numberOfInstallments);
+  }
+}
@@ -0,0 +1,49 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code LoanService.payLoan} paying the first installment of a freshly created 12-installment loan.
+ * Creating the loan happens in an untimed per-invocation setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanPaymentBenchmark {
+
+  private static final int NUMBER_OF_INSTALLMENTS = 12;
+
+  private Long loanId;
+
+  private BigDecimal installmentAmount;
+
+  @Setup(Level.Invocation)
+  public void createLoan(ApplicationState application) {
+    LoanDTO loan = application.createLoan(NUMBER_OF_INSTALLMENTS);
+    loanId = loan.getId();
+    installmentAmount = loan.getLoanAmount().divide(BigDecimal.valueOf(NUMBER_OF_INSTALLMENTS), RoundingMode.UP);
+  }
+
+  @Benchmark
+  public PaymentResultDTO payLoan(ApplicationState application) {
+    return application.loanService.payLoan(loanId, installmentAmount);
+  }
+}
@@ -0,0 +1,92 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Database space taken by loans and everything stored with them. Each operation originates a loan and
+ * pays its first installment. After every iteration the bytes used by all tables except the customer
+ * table are printed per loan; JMH has no result type for them, so read them from the run output. Runs on
+ * a file-backed H2 database under {@code target/} because in-memory databases report no space used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, batchSize = 2000)
+@Measurement(iterations = 3, batchSize = 2000)
+public class LoanStorageBenchmark {
+
+  @Param({"6", "24"})
+  private int numberOfInstallments;
+
+  private ConfigurableApplicationContext context;
+
+  private LoanService loanService;
+
+  private Long customerId;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkApplication.start("spring.datasource.url=jdbc:h2:file:./target/jmh-storage/loans-" + System.nanoTime(),
+                                         "spring.jpa.hibernate.ddl-auto=create");
+    loanService = context.getBean(LoanService.class);
+    customerId = context.getBean(CustomerRepository.class)
+                        .save(Customer.builder()
+                                      .name("Storage")
+                                      .surname("Customer")
+                                      .creditLimit(new BigDecimal("1000000000000000"))
+                                      .usedCreditLimit(BigDecimal.ZERO)
+                                      .build())
+                        .getId();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void createAndPayLoan() {
+    LoanDTO loan = loanService.createLoan(customerId, ApplicationState.LOAN_AMOUNT, ApplicationState.INTEREST_RATE,
+                                          numberOfInstallments);
+    BigDecimal installmentAmount =
+        loan.getLoanAmount().divide(BigDecimal.valueOf(numberOfInstallments), RoundingMode.UP);
+    loanService.payLoan(loan.getId(), installmentAmount);
+  }
+
+  @TearDown(Level.Iteration)
+  public void printStorage() {
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+    jdbcTemplate.execute("checkpoint");
+    List<String> tables = jdbcTemplate.queryForList(
+        "select table_name from information_schema.tables where table_schema = 'PUBLIC' "
+        + "and table_type = 'BASE TABLE' and table_name <> 'CUSTOMER'", String.class);
+    long bytes = tables.stream()
+                       .mapToLong(table -> jdbcTemplate.queryForObject("select disk_space_used(?)", Long.class, table))
+                       .sum();
+    long loans = jdbcTemplate.queryForObject("select count(*) from loan", Long.class);
+    System.out.printf("%n%d loans use %d bytes in %s: %d bytes per loan%n", loans, bytes, tables, bytes / loans);
+  }
+}
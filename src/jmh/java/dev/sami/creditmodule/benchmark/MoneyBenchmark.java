@@ -0,0 +1,110 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.service.Money;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Schedule and settlement arithmetic of a loan on {@link Money}'s cents against the {@link BigDecimal}
+ * arithmetic the services used before. The schedule is the loan amount and installment amount of a new
+ * loan, the settlement the installments a payment covers and the amount it spends. Run with
+ * {@code -prof gc} to compare allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoneyBenchmark {
+
+  @Param({"6", "24"})
+  private int numberOfInstallments;
+
+  private BigDecimal amount;
+
+  private double interestRate;
+
+  private BigDecimal installmentAmount;
+
+  private BigDecimal payment;
+
+  @Setup
+  public void setUp() {
+    amount = new BigDecimal("12345.67");
+    interestRate = 0.35;
+    installmentAmount = amount.multiply(BigDecimal.valueOf(1 + interestRate))
+                              .divide(BigDecimal.valueOf(numberOfInstallments), 2, RoundingMode.HALF_UP);
+    payment = installmentAmount.multiply(BigDecimal.valueOf(3)).add(BigDecimal.ONE);
+  }
+
+  @Benchmark
+  public void bigDecimalSchedule(Blackhole blackhole) {
+    BigDecimal totalAmount = amount.multiply(BigDecimal.valueOf(1 + interestRate));
+    blackhole.consume(totalAmount.setScale(2, RoundingMode.HALF_UP));
+    blackhole.consume(totalAmount.divide(BigDecimal.valueOf(numberOfInstallments), 2, RoundingMode.HALF_UP));
+  }
+
+  @Benchmark
+  public void minorUnitSchedule(Blackhole blackhole) {
+    long principal = Money.fromAmount(amount);
+    long rate = Money.rate(interestRate);
+    blackhole.consume(Money.totalWithInterest(principal, rate));
+    blackhole.consume(Money.installment(principal, rate, numberOfInstallments));
+  }
+
+  @Benchmark
+  public void bigDecimalSettlement(Blackhole blackhole) {
+    int count = Math.max(0, payment.divideToIntegralValue(installmentAmount)
+                                   .min(BigDecimal.valueOf(numberOfInstallments))
+                                   .intValue());
+    blackhole.consume(count);
+    blackhole.consume(installmentAmount.multiply(BigDecimal.valueOf(count)));
+  }
+
+  @Benchmark
+  public void minorUnitSettlement(Blackhole blackhole) {
+    long installment = Money.fromAmount(installmentAmount);
+    int count = Money.coveredInstallments(Money.fromPayment(payment), installment, numberOfInstallments);
+    blackhole.consume(count);
+    blackhole.consume(Money.settled(installment, count));
+  }
+
+  /**
+   * The settlement once the amounts are already in cents, as in a loop over many payments of loans read
+   * into minor units: no conversion at all.
+   */
+  @Benchmark
+  public void minorUnitSettlementCore(MinorUnits minorUnits, Blackhole blackhole) {
+    int count = Money.coveredInstallments(minorUnits.payment, minorUnits.installment, numberOfInstallments);
+    blackhole.consume(count);
+    blackhole.consume(Money.settled(minorUnits.installment, count));
+  }
+
+  @State(Scope.Benchmark)
+  public static class MinorUnits {
+
+    private long installment;
+
+    private long payment;
+
+    @Setup
+    public void setUp(MoneyBenchmark benchmark) {
+      installment = Money.fromAmount(benchmark.installmentAmount);
+      payment = Money.fromPayment(benchmark.payment);
+    }
+  }
+}
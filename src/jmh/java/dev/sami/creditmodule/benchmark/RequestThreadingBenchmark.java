@@ -0,0 +1,114 @@
+package dev.sami.creditmodule.benchmark;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@code POST /api/loans} and {@code POST /api/loans/{id}/pay} over HTTP from more concurrent clients than
+ * Tomcat has platform request threads, once with the default threading and once with the
+ * {@code virtual-threads} profile. Every client thread has its own customer, so clients do not queue on
+ * each other's customer row. The virtual-threads run needs a Java 21 JVM; on older JVMs both runs use
+ * platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(400)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RequestThreadingBenchmark {
+
+  private static final int NUMBER_OF_INSTALLMENTS = 12;
+
+  @Param({"default", "virtual-threads"})
+  private String profile;
+
+  private ConfigurableApplicationContext context;
+
+  private LoanService loanService;
+
+  private CustomerRepository customerRepository;
+
+  private CreditApiClient apiClient;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkApplication.startServer("spring.profiles.active=" + profile);
+    loanService = context.getBean(LoanService.class);
+    customerRepository = context.getBean(CustomerRepository.class);
+    apiClient = new CreditApiClient(BenchmarkApplication.port(context));
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+
+    private Long customerId;
+
+    @Setup
+    public void createCustomer(RequestThreadingBenchmark benchmark) {
+      customerId = benchmark.customerRepository.save(Customer.builder()
+                                                             .name("Load")
+                                                             .surname("Client")
+                                                             .creditLimit(new BigDecimal("1000000000000000"))
+                                                             .usedCreditLimit(BigDecimal.ZERO)
+                                                             .build())
+                                               .getId();
+    }
+  }
+
+  /**
+   * A fresh 12-installment loan of the client's customer, created in an untimed per-invocation setup.
+   */
+  @State(Scope.Thread)
+  public static class UnpaidLoan {
+
+    private Long loanId;
+
+    private BigDecimal installmentAmount;
+
+    @Setup(Level.Invocation)
+    public void createLoan(RequestThreadingBenchmark benchmark, Client client) {
+      LoanDTO loan = benchmark.loanService.createLoan(client.customerId, ApplicationState.LOAN_AMOUNT,
+                                                      ApplicationState.INTEREST_RATE, NUMBER_OF_INSTALLMENTS);
+      loanId = loan.getId();
+      installmentAmount = loan.getLoanAmount().divide(BigDecimal.valueOf(NUMBER_OF_INSTALLMENTS), RoundingMode.UP);
+    }
+  }
+
+  @Benchmark
+  public String createLoan(Client client) {
+    return apiClient.createLoan(client.customerId, ApplicationState.LOAN_AMOUNT, ApplicationState.INTEREST_RATE,
+                                NUMBER_OF_INSTALLMENTS);
+  }
+
+  @Benchmark
+  public String payLoan(UnpaidLoan loan) {
+    return apiClient.payLoan(loan.loanId, loan.installmentAmount);
+  }
+}
@@ -0,0 +1,45 @@
+package dev.sami.creditmodule.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bounded Caffeine caches for customer and loan lookups. Caches are filled on read and evicted by every
+ * write to the cached row; hit, miss and eviction counts are published as {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+  public static final String CUSTOMERS = "customers";
+
+  public static final String LOANS = "loans";
+
+  @Bean
+  public CacheManager cacheManager(@Value("${credit-module.cache.customers.spec}") String customersSpec,
+                                   @Value("${credit-module.cache.loans.spec}") String loansSpec) {
+    SimpleCacheManager cacheManager = new SimpleCacheManager();
+    cacheManager.setCaches(List.of(cache(CUSTOMERS, customersSpec), cache(LOANS, loansSpec)));
+    return cacheManager;
+  }
+
+  @Bean
+  public CacheMeterBinderProvider<EvictOnCompletionCache> evictOnCompletionCacheMeterBinderProvider() {
+    CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+    return (cache, tags) -> caffeine.getMeterBinder((CaffeineCache) cache.getTarget(), tags);
+  }
+
+  private Cache cache(String name, String spec) {
+    return new EvictOnCompletionCache(new CaffeineCache(name, Caffeine.from(spec).build()));
+  }
+}
@@ -0,0 +1,117 @@
+package dev.sami.creditmodule.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cache whose evictions are applied at once and again when the surrounding transaction completes. The
+ * first eviction lets the transaction read its own changes back from the database; the second drops
+ * anything cached while the transaction was running, so uncommitted values do not survive a rollback and
+ * values read by other transactions before the commit do not outlive it. A value read before the commit
+ * but cached after it can only be dropped if it is loaded through {@link #get(Object, Callable)}
+ * ({@code @Cacheable(sync = true)}).
+ */
+public class EvictOnCompletionCache implements Cache {
+
+  private final Cache target;
+
+  public EvictOnCompletionCache(Cache target) {
+    this.target = target;
+  }
+
+  public Cache getTarget() {
+    return target;
+  }
+
+  @Override
+  public String getName() {
+    return target.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return target.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    return target.get(key);
+  }
+
+  @Override
+  public <T> T get(Object key, Class<T> type) {
+    return target.get(key, type);
+  }
+
+  /**
+   * Loads a missing value while holding the key, so evictions of the key wait for the load. Nothing is
+   * kept for a value that was not found, so a row created later is not hidden behind a cached miss.
+   */
+  @Override
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    T value = target.get(key, valueLoader);
+    if (value == null) {
+      target.evict(key);
+    }
+    return value;
+  }
+
+  @Override
+  public CompletableFuture<?> retrieve(Object key) {
+    return target.retrieve(key);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+    return target.retrieve(key, valueLoader);
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    target.put(key, value);
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    return target.putIfAbsent(key, value);
+  }
+
+  @Override
+  public void evict(Object key) {
+    target.evict(key);
+    afterCompletion(() -> target.evict(key));
+  }
+
+  @Override
+  public boolean evictIfPresent(Object key) {
+    afterCompletion(() -> target.evict(key));
+    return target.evictIfPresent(key);
+  }
+
+  @Override
+  public void clear() {
+    target.clear();
+    afterCompletion(target::clear);
+  }
+
+  @Override
+  public boolean invalidate() {
+    afterCompletion(target::clear);
+    return target.invalidate();
+  }
+
+  private static void afterCompletion(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          action.run();
+        }
+      });
+    }
+  }
+}
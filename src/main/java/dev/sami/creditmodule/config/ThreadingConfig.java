@@ -0,0 +1,34 @@
+package dev.sami.creditmodule.config;
+
+import java.util.concurrent.ThreadFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Threads of the application's own workers: virtual threads when {@code spring.threads.virtual.enabled} is
+ * set and the JVM supports them (Java 21+), platform threads otherwise.
+ */
+@Configuration
+public class ThreadingConfig {
+
+  @Bean
+  public ThreadFactory paymentImportThreadFactory(Environment environment) {
+    return threadFactory(environment, "payment-import-");
+  }
+
+  @Bean
+  public ThreadFactory asyncPaymentThreadFactory(Environment environment) {
+    return threadFactory(environment, "async-payment-");
+  }
+
+  private ThreadFactory threadFactory(Environment environment, String threadNamePrefix) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      return new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+    }
+    return new CustomizableThreadFactory(threadNamePrefix);
+  }
+}
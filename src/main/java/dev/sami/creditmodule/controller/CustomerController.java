@@ -1,9 +1,19 @@
 package dev.sami.creditmodule.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.dto.CustomerPageDTO;
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
+import dev.sami.creditmodule.service.CustomerPortfolioService;
 import dev.sami.creditmodule.service.CustomerService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,15 +22,39 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
-@AllArgsConstructor
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+  /**
+   * Header holding the {@code afterId} of the next page of {@code GET /api/customers}, absent on the last
+   * page.
+   */
+  public static final String NEXT_CURSOR = "X-Next-Cursor";
+
   private final CustomerService customerService;
 
+  private final CustomerPortfolioService customerPortfolioService;
+
+  private final ObjectMapper objectMapper;
+
+  private final Duration streamTimeout;
+
+  public CustomerController(CustomerService customerService, CustomerPortfolioService customerPortfolioService,
+                            ObjectMapper objectMapper,
+                            @Value("${credit-module.customers.stream-timeout:10m}") Duration streamTimeout) {
+    this.customerService = customerService;
+    this.customerPortfolioService = customerPortfolioService;
+    this.objectMapper = objectMapper;
+    this.streamTimeout = streamTimeout;
+  }
+
   @PostMapping
   public ResponseEntity<CustomerDTO> createCustomer(@RequestBody CustomerDTO customerDTO) {
     CustomerDTO createdCustomer = customerService.createCustomer(customerDTO);
@@ -33,10 +67,42 @@ public class CustomerController {
     return ResponseEntity.ok(customer);
   }
 
+  @GetMapping("/{id}/portfolio")
+  public ResponseEntity<CustomerPortfolioDTO> getCustomerPortfolio(@PathVariable Long id) {
+    CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(id);
+    return ResponseEntity.ok(portfolio);
+  }
+
   @GetMapping
-  public ResponseEntity<List<CustomerDTO>> getAllCustomers() {
-    List<CustomerDTO> customers = customerService.getAllCustomers();
-    return ResponseEntity.ok(customers);
+  public ResponseEntity<List<CustomerDTO>> getCustomers(
+      @RequestParam(defaultValue = "0") Long afterId,
+      @RequestParam(defaultValue = "${credit-module.customers.page-size:100}") int size) {
+    CustomerPageDTO page = customerService.getCustomers(afterId, size);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.getNextAfterId() != null) {
+      response.header(NEXT_CURSOR, page.getNextAfterId().toString());
+    }
+    return response.body(page.getCustomers());
+  }
+
+  /**
+   * Writes the whole table in one response, so the request may run for longer than other asynchronous
+   * requests: its timeout is {@code credit-module.customers.stream-timeout} instead of the MVC default.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamCustomers(HttpServletRequest request) {
+    AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+    if (asyncRequest != null) {
+      asyncRequest.setTimeout(streamTimeout.toMillis());
+    }
+    StreamingResponseBody body = outputStream -> {
+      try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+        generator.writeStartArray();
+        customerService.streamAllCustomers(customer -> writeCustomer(generator, customer));
+        generator.writeEndArray();
+      }
+    };
+    return ResponseEntity.ok(body);
   }
 
   @PutMapping("/{id}")
@@ -51,4 +117,12 @@ public class CustomerController {
     customerService.deleteCustomer(id);
     return ResponseEntity.noContent().build();
   }
+
+  private void writeCustomer(JsonGenerator generator, CustomerDTO customer) {
+    try {
+      generator.writeObject(customer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
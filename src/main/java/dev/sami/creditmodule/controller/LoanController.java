@@ -1,52 +1,145 @@
 package dev.sami.creditmodule.controller;
 
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
 import dev.sami.creditmodule.dto.LoanDTO;
 import dev.sami.creditmodule.dto.LoanInstallmentDTO;
+import dev.sami.creditmodule.dto.LoanQuoteDTO;
+import dev.sami.creditmodule.dto.LoanQuoteRequestDTO;
 import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.service.AsyncPaymentService;
+import dev.sami.creditmodule.service.IdempotencyService;
+import dev.sami.creditmodule.service.LoanQuoteService;
 import dev.sami.creditmodule.service.LoanService;
+import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/loans")
 @RequiredArgsConstructor
 public class LoanController {
 
+  static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
   private final LoanService loanService;
 
+  private final AsyncPaymentService asyncPaymentService;
+
+  private final IdempotencyService idempotencyService;
+
+  private final LoanQuoteService loanQuoteService;
+
   @PostMapping
   public ResponseEntity<LoanDTO> createLoan(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
       @RequestParam Long customerId,
       @RequestParam BigDecimal amount,
       @RequestParam Double interestRate,
       @RequestParam Integer numberOfInstallments) {
-    LoanDTO loan = loanService.createLoan(customerId, amount, interestRate, numberOfInstallments);
-    return ResponseEntity.ok(loan);
+    String fingerprint = "createLoan customerId=" + customerId + " amount=" + fingerprint(amount) + " interestRate="
+                         + interestRate + " numberOfInstallments=" + numberOfInstallments;
+    return idempotencyService.execute(idempotencyKey, fingerprint, LoanDTO.class, () -> {
+      LoanDTO loan = loanService.createLoan(customerId, amount, interestRate, numberOfInstallments);
+      return ResponseEntity.ok(loan);
+    });
+  }
+
+  @PostMapping("/batch")
+  public ResponseEntity<List<LoanBatchResultDTO>> createLoans(@RequestBody List<LoanApplicationDTO> applications) {
+    List<LoanBatchResultDTO> results = loanService.createLoans(applications);
+    return ResponseEntity.ok(results);
   }
 
+  @PostMapping("/quote")
+  public ResponseEntity<List<LoanQuoteDTO>> quoteLoans(@Valid @RequestBody LoanQuoteRequestDTO request) {
+    List<LoanQuoteDTO> quotes = loanQuoteService.quote(request);
+    return ResponseEntity.ok(quotes);
+  }
+
+  /**
+   * Tagged with the customer's loans version, read before the loans, so a matching {@code If-None-Match}
+   * answers 304 without reading them. {@link WebRequest#checkNotModified} sets the 304's headers.
+   */
   @GetMapping
-  public ResponseEntity<List<LoanDTO>> listLoans(@RequestParam Long customerId) {
+  public ResponseEntity<List<LoanDTO>> listLoans(@RequestParam Long customerId, WebRequest request) {
+    String eTag = String.valueOf(loanService.getLoansVersion(customerId));
+    if (request.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+    }
     List<LoanDTO> loans = loanService.getLoansByCustomer(customerId);
-    return ResponseEntity.ok(loans);
+    return ResponseEntity.ok().eTag(eTag).body(loans);
   }
 
+  /**
+   * Tagged with the loan's version, so a matching {@code If-None-Match} answers 304 without deriving the
+   * installments or reading the loan's payments.
+   */
   @GetMapping("/{loanId}/installments")
-  public ResponseEntity<List<LoanInstallmentDTO>> listInstallments(@PathVariable Long loanId) {
-    List<LoanInstallmentDTO> installments = loanService.getInstallmentsByLoan(loanId);
-    return ResponseEntity.ok(installments);
+  public ResponseEntity<List<LoanInstallmentDTO>> listInstallments(@PathVariable Long loanId, WebRequest request) {
+    Optional<Long> version = loanService.getLoanVersion(loanId);
+    if (version.isEmpty()) {
+      return ResponseEntity.ok(List.of());
+    }
+    String eTag = String.valueOf(version.get());
+    if (request.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(loanService.getInstallmentsByLoan(loanId, version.get()));
   }
 
   @PostMapping("/{loanId}/pay")
-  public ResponseEntity<PaymentResultDTO> payLoan(@PathVariable Long loanId, @RequestParam BigDecimal amount) {
-    PaymentResultDTO paymentResultDTO = loanService.payLoan(loanId, amount);
-    return ResponseEntity.ok(paymentResultDTO);
+  public ResponseEntity<PaymentResultDTO> payLoan(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      @PathVariable Long loanId,
+      @RequestParam BigDecimal amount) {
+    String fingerprint = "payLoan loanId=" + loanId + " amount=" + fingerprint(amount);
+    return idempotencyService.execute(idempotencyKey, fingerprint, PaymentResultDTO.class, () -> {
+      PaymentResultDTO paymentResultDTO = loanService.payLoan(loanId, amount);
+      return ResponseEntity.ok(paymentResultDTO);
+    });
+  }
+
+  /**
+   * A retry with the same {@code Idempotency-Key} gets the first request's 202 and payment id back instead
+   * of queueing the payment again; its status is the one the payment had when it was queued.
+   */
+  @PostMapping(value = "/{loanId}/pay", params = "async=true")
+  public ResponseEntity<PaymentStatusDTO> payLoanAsync(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      @PathVariable Long loanId,
+      @RequestParam BigDecimal amount) {
+    String fingerprint = "payLoanAsync loanId=" + loanId + " amount=" + fingerprint(amount);
+    ResponseEntity<PaymentStatusDTO> response =
+        idempotencyService.execute(idempotencyKey, fingerprint, PaymentStatusDTO.class, () -> {
+          PaymentStatusDTO status = asyncPaymentService.submit(loanId, amount);
+          return ResponseEntity.accepted().body(status);
+        });
+    return ResponseEntity.status(response.getStatusCode())
+                         .headers(response.getHeaders())
+                         .location(URI.create("/api/payments/" + response.getBody().getId()))
+                         .body(response.getBody());
+  }
+
+  /**
+   * The amount without trailing zeros, so a retry that writes {@code 1000.00} for {@code 1000} matches.
+   */
+  private static String fingerprint(BigDecimal amount) {
+    return amount.stripTrailingZeros().toPlainString();
   }
 }
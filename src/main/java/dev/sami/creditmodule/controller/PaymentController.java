@@ -0,0 +1,42 @@
+package dev.sami.creditmodule.controller;
+
+import dev.sami.creditmodule.dto.PaymentImportReportDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.service.AsyncPaymentService;
+import dev.sami.creditmodule.service.PaymentImportService;
+import java.io.InputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/payments")
+@RequiredArgsConstructor
+public class PaymentController {
+
+  private final PaymentImportService paymentImportService;
+
+  private final AsyncPaymentService asyncPaymentService;
+
+  @GetMapping("/{id}")
+  public ResponseEntity<PaymentStatusDTO> getPaymentStatus(@PathVariable String id) {
+    return ResponseEntity.of(asyncPaymentService.getStatus(id));
+  }
+
+  @PostMapping(value = "/import", consumes = "text/csv")
+  public ResponseEntity<PaymentImportReportDTO> importCsv(InputStream body) {
+    PaymentImportReportDTO report = paymentImportService.importCsv(body);
+    return ResponseEntity.ok(report);
+  }
+
+  @PostMapping(value = "/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<PaymentImportReportDTO> importBinary(InputStream body) {
+    PaymentImportReportDTO report = paymentImportService.importBinary(body);
+    return ResponseEntity.ok(report);
+  }
+}
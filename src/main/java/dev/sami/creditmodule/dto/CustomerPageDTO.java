@@ -0,0 +1,17 @@
+package dev.sami.creditmodule.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CustomerPageDTO {
+
+  private List<CustomerDTO> customers;
+
+  /**
+   * The {@code afterId} to request the next page with, {@code null} on the last page.
+   */
+  private Long nextAfterId;
+}
@@ -0,0 +1,26 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerPortfolioDTO {
+
+  private Long customerId;
+
+  private int openLoans;
+
+  private BigDecimal outstandingAmount;
+
+  /**
+   * Earliest due date of an unpaid installment that is not overdue yet, {@code null} if there is none.
+   */
+  private LocalDate nextDueDate;
+
+  private BigDecimal overdueAmount;
+}
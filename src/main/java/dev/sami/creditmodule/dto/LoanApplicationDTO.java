@@ -0,0 +1,20 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanApplicationDTO {
+
+  private Long customerId;
+
+  private BigDecimal amount;
+
+  private Double interestRate;
+
+  private Integer numberOfInstallments;
+}
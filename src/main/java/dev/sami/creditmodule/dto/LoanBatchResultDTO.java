@@ -0,0 +1,15 @@
+package dev.sami.creditmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LoanBatchResultDTO {
+
+  private int index;
+
+  private LoanDTO loan;
+
+  private String error;
+}
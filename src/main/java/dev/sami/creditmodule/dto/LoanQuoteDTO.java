@@ -0,0 +1,31 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The loan {@code createLoan} would create for an amount, interest rate and installment count, or why it
+ * would be rejected. {@code totalRepayment} is what the installments sum to, which is also the credit the
+ * loan reserves.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanQuoteDTO {
+
+  private BigDecimal amount;
+
+  private Double interestRate;
+
+  private Integer numberOfInstallments;
+
+  private BigDecimal loanAmount;
+
+  private BigDecimal installmentAmount;
+
+  private BigDecimal totalRepayment;
+
+  private String error;
+}
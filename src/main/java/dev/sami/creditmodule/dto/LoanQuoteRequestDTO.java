@@ -0,0 +1,39 @@
+package dev.sami.creditmodule.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Every combination of the amounts, interest rates and installment counts is quoted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanQuoteRequestDTO {
+
+  public static final int MAX_QUOTES = 1000;
+
+  @NotEmpty
+  private List<@NotNull @Positive BigDecimal> amounts;
+
+  @NotEmpty
+  private List<@NotNull Double> interestRates;
+
+  @NotEmpty
+  private List<@NotNull Integer> numberOfInstallments;
+
+  @JsonIgnore
+  @AssertTrue(message = "at most " + MAX_QUOTES + " combinations can be quoted at once")
+  public boolean isWithinQuoteLimit() {
+    return amounts == null || interestRates == null || numberOfInstallments == null
+           || (long) amounts.size() * interestRates.size() * numberOfInstallments.size() <= MAX_QUOTES;
+  }
+}
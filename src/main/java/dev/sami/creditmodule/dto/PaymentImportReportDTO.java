@@ -0,0 +1,27 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PaymentImportReportDTO {
+
+  private long recordsRead;
+
+  private long paymentsApplied;
+
+  private long paymentsRejected;
+
+  private long installmentsPaid;
+
+  private BigDecimal totalAmountPaid;
+
+  private long loansFullyPaid;
+
+  private long durationMillis;
+
+  private List<String> errors;
+}
@@ -0,0 +1,16 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentRequestDTO {
+
+  private Long loanId;
+
+  private BigDecimal amount;
+}
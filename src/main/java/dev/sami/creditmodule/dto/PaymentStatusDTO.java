@@ -0,0 +1,33 @@
+package dev.sami.creditmodule.dto;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatusDTO {
+
+  private String id;
+
+  private Long loanId;
+
+  private BigDecimal amount;
+
+  private Status status;
+
+  /**
+   * What this payment alone settled, as {@code POST /api/loans/{id}/pay} would have returned it.
+   */
+  private PaymentResultDTO result;
+
+  private String error;
+
+  public enum Status {
+    PENDING,
+    COMPLETED,
+    FAILED
+  }
+}
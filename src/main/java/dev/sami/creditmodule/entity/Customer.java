@@ -3,6 +3,7 @@ package dev.sami.creditmodule.entity;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -27,4 +28,7 @@ public class Customer {
   private BigDecimal creditLimit;
 
   private BigDecimal usedCreditLimit;
+
+  @Version
+  private Long version;
 }
@@ -0,0 +1,40 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Overdue amounts of a customer by how many days they are overdue, summed over the customer's
+ * {@link LoanDelinquency} rows as of the last aging run.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerDelinquency {
+
+  @Id
+  private Long customerId;
+
+  private LocalDate asOfDate;
+
+  @Column(name = "overdue_1_30")
+  private BigDecimal overdue1To30;
+
+  @Column(name = "overdue_31_60")
+  private BigDecimal overdue31To60;
+
+  @Column(name = "overdue_61_90")
+  private BigDecimal overdue61To90;
+
+  @Column(name = "overdue_over_90")
+  private BigDecimal overdueOver90;
+}
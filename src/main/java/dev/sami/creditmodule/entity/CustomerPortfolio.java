@@ -0,0 +1,30 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running totals over a customer's loans, kept up to date as loans are created and paid. {@code loansVersion}
+ * counts those changes and tags the customer's loan list for conditional reads.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerPortfolio {
+
+  @Id
+  private Long customerId;
+
+  private Integer openLoans;
+
+  private BigDecimal outstandingAmount;
+
+  private Long loansVersion;
+}
@@ -0,0 +1,43 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unpaid installment amount of a customer falling due on one date, summed over all of the customer's
+ * loans. Rows are removed once the amount reaches zero.
+ */
+@Data
+@Entity
+@IdClass(CustomerPortfolioDue.Key.class)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerPortfolioDue {
+
+  @Id
+  private Long customerId;
+
+  @Id
+  private LocalDate dueDate;
+
+  private BigDecimal amount;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+
+    private Long customerId;
+
+    private LocalDate dueDate;
+  }
+}
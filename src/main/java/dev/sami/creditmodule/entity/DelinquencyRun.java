@@ -0,0 +1,29 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Checkpoint of the aging run for one date: every unpaid loan up to {@code lastLoanId} has been aged.
+ * A run without {@code completedAt} is resumed after its last checkpoint.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DelinquencyRun {
+
+  @Id
+  private LocalDate asOfDate;
+
+  private Long lastLoanId;
+
+  private LocalDateTime completedAt;
+}
@@ -0,0 +1,45 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The response of a request sent with an {@code Idempotency-Key}. A record without a status is claimed by a
+ * request that is still running, until it expires; its claim token identifies the request holding it.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expires_at"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+  @Id
+  @Column(name = "idempotency_key")
+  private String key;
+
+  /**
+   * Operation and parameters of the request, so a key reused for a different request is rejected.
+   */
+  @Column(length = 1000)
+  private String fingerprint;
+
+  @Column(length = 36)
+  private String claimToken;
+
+  private Integer status;
+
+  @Column(length = 10000)
+  private String body;
+
+  private LocalDateTime expiresAt;
+}
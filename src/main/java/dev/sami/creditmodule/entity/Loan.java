@@ -2,7 +2,12 @@ package dev.sami.creditmodule.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
@@ -12,13 +17,15 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_loan_customer_id", columnList = "customer_id"))
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Loan {
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+  @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
   private Long id;
 
   private Long customerId;
@@ -27,7 +34,14 @@ public class Loan {
 
   private Integer numberOfInstallments;
 
+  private BigDecimal installmentAmount;
+
+  private Integer paidInstallments;
+
   private LocalDate createDate;
 
   private Boolean isPaid;
+
+  @Version
+  private Long version;
 }
@@ -0,0 +1,43 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Amounts of a loan's unpaid installments by how many days they are overdue, as of the aging run that
+ * wrote the row. Loans with nothing overdue have no row; a completed run removes the rows it did not
+ * rewrite.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanDelinquency {
+
+  @Id
+  private Long loanId;
+
+  private Long customerId;
+
+  private LocalDate asOfDate;
+
+  @Column(name = "overdue_1_30")
+  private BigDecimal overdue1To30;
+
+  @Column(name = "overdue_31_60")
+  private BigDecimal overdue31To60;
+
+  @Column(name = "overdue_61_90")
+  private BigDecimal overdue61To90;
+
+  @Column(name = "overdue_over_90")
+  private BigDecimal overdueOver90;
+}
@@ -0,0 +1,39 @@
+package dev.sami.creditmodule.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@Table(indexes = @Index(name = "idx_loan_payment_loan_first", columnList = "loan_id, first_installment"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanPayment {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_payment_seq")
+  @SequenceGenerator(name = "loan_payment_seq", sequenceName = "loan_payment_seq", allocationSize = 50)
+  private Long id;
+
+  private Long loanId;
+
+  private Integer firstInstallment;
+
+  private Integer installmentsPaid;
+
+  private BigDecimal amount;
+
+  private LocalDate paymentDate;
+}
@@ -3,6 +3,7 @@ package dev.sami.creditmodule.exception;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -28,6 +29,24 @@ public class GlobalExceptionHandler {
     return ResponseEntity.badRequest().body(errors);
   }
 
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<Map<String, Object>> handleRejectedExecutionExceptions(RejectedExecutionException ex) {
+    Map<String, Object> error = new HashMap<>();
+    error.put("timestamp", LocalDateTime.now());
+    error.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+    error.put("message", ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+  }
+
+  @ExceptionHandler(IdempotencyKeyException.class)
+  public ResponseEntity<Map<String, Object>> handleIdempotencyKeyExceptions(IdempotencyKeyException ex) {
+    Map<String, Object> error = new HashMap<>();
+    error.put("timestamp", LocalDateTime.now());
+    error.put("status", ex.getStatus().value());
+    error.put("message", ex.getMessage());
+    return ResponseEntity.status(ex.getStatus()).body(error);
+  }
+
   @ExceptionHandler(Exception.class)
   public ResponseEntity<Map<String, Object>> handleGenericExceptions(Exception ex) {
     Map<String, Object> error = new HashMap<>();
@@ -0,0 +1,19 @@
+package dev.sami.creditmodule.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A request whose {@code Idempotency-Key} cannot be honoured: the key is invalid, belongs to a different
+ * request, or its first request is still running.
+ */
+@Getter
+public class IdempotencyKeyException extends RuntimeException {
+
+  private final HttpStatus status;
+
+  public IdempotencyKeyException(HttpStatus status, String message) {
+    super(message);
+    this.status = status;
+  }
+}
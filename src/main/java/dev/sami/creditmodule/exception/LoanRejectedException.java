@@ -0,0 +1,24 @@
+package dev.sami.creditmodule.exception;
+
+import lombok.Getter;
+
+/**
+ * A loan application that breaks a business rule. The reason is a short, fixed code of the broken rule,
+ * used to tag metrics.
+ */
+@Getter
+public class LoanRejectedException extends IllegalArgumentException {
+
+  public static final String LIMIT = "rejected_limit";
+
+  public static final String INVALID_RATE = "invalid_rate";
+
+  public static final String INVALID_INSTALLMENTS = "invalid_installments";
+
+  private final String reason;
+
+  public LoanRejectedException(String reason, String message) {
+    super(message);
+    this.reason = reason;
+  }
+}
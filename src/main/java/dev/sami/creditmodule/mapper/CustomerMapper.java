@@ -0,0 +1,20 @@
+package dev.sami.creditmodule.mapper;
+
+import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.entity.Customer;
+import java.util.List;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface CustomerMapper {
+
+  CustomerDTO toDto(Customer customer);
+
+  List<CustomerDTO> toDtos(List<Customer> customers);
+
+  @Mapping(target = "version", ignore = true)
+  Customer toEntity(CustomerDTO customerDTO);
+}
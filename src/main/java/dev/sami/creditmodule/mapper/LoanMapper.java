@@ -0,0 +1,16 @@
+package dev.sami.creditmodule.mapper;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Loan;
+import java.util.List;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface LoanMapper {
+
+  LoanDTO toDto(Loan loan);
+
+  List<LoanDTO> toDtos(List<Loan> loans);
+}
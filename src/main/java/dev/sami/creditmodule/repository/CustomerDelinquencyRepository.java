@@ -0,0 +1,7 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.entity.CustomerDelinquency;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CustomerDelinquencyRepository extends JpaRepository<CustomerDelinquency, Long> {
+}
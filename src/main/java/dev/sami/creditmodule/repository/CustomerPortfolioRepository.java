@@ -0,0 +1,25 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
+import dev.sami.creditmodule.entity.CustomerPortfolio;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface CustomerPortfolioRepository extends JpaRepository<CustomerPortfolio, Long> {
+
+  /**
+   * Reads the customer's totals together with the next due date and the overdue amount as of
+   * {@code today}, in one query over the customer's portfolio rows.
+   */
+  @Query("select new dev.sami.creditmodule.dto.CustomerPortfolioDTO(p.customerId, p.openLoans, p.outstandingAmount, "
+         + "(select min(d.dueDate) from CustomerPortfolioDue d where d.customerId = p.customerId and d.dueDate >= :today), "
+         + "(select coalesce(sum(d.amount), 0) from CustomerPortfolioDue d "
+         + "where d.customerId = p.customerId and d.dueDate < :today)) "
+         + "from CustomerPortfolio p where p.customerId = :customerId")
+  Optional<CustomerPortfolioDTO> findPortfolio(Long customerId, LocalDate today);
+
+  @Query("select p.loansVersion from CustomerPortfolio p where p.customerId = :customerId")
+  Optional<Long> findLoansVersion(Long customerId);
+}
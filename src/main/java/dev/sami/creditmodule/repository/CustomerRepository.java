@@ -1,8 +1,46 @@
 package dev.sami.creditmodule.repository;
 
+import dev.sami.creditmodule.dto.CustomerDTO;
 import dev.sami.creditmodule.entity.Customer;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
+  List<Customer> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  @Query("select c.id from Customer c where c.id in :ids")
+  List<Long> findIdsByIdIn(Collection<Long> ids);
+
+  /**
+   * Reads every customer with a forward-only cursor as unmanaged DTOs, so the persistence context
+   * does not grow with the table. Must be consumed inside a transaction and closed.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query("select new dev.sami.creditmodule.dto.CustomerDTO(c.id, c.name, c.surname, c.creditLimit, c.usedCreditLimit) "
+         + "from Customer c order by c.id")
+  Stream<CustomerDTO> streamAllOrderById();
+
+  /**
+   * Adds {@code amount} (negative to release) to the used credit limit in a single statement,
+   * only if the result stays between zero and the credit limit. The version is bumped, so an update of
+   * the customer read before this one fails instead of writing back a stale used credit limit.
+   *
+   * @return the number of updated rows, 0 if the customer does not exist or the limit would be violated
+   */
+  @Transactional
+  @Modifying
+  @Query("update Customer c set c.usedCreditLimit = c.usedCreditLimit + :amount, c.version = c.version + 1 "
+         + "where c.id = :customerId and c.usedCreditLimit + :amount between 0 and c.creditLimit")
+  int adjustUsedCreditLimit(Long customerId, BigDecimal amount);
 }
@@ -0,0 +1,8 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.entity.DelinquencyRun;
+import java.time.LocalDate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DelinquencyRunRepository extends JpaRepository<DelinquencyRun, LocalDate> {
+}
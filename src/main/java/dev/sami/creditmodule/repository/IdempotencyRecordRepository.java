@@ -0,0 +1,37 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.entity.IdempotencyRecord;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+  /**
+   * Stores the response of a key claimed with {@code claimToken} and keeps it until {@code expiresAt}.
+   *
+   * @return the number of updated rows, 0 if the claim was released or taken over after its lease expired
+   */
+  @Transactional
+  @Modifying
+  @Query("update IdempotencyRecord r set r.status = :status, r.body = :body, r.expiresAt = :expiresAt "
+         + "where r.key = :key and r.claimToken = :claimToken and r.status is null")
+  int complete(String key, String claimToken, int status, String body, LocalDateTime expiresAt);
+
+  @Transactional
+  @Modifying
+  @Query("delete from IdempotencyRecord r where r.key = :key and r.claimToken = :claimToken and r.status is null")
+  int release(String key, String claimToken);
+
+  @Transactional
+  @Modifying
+  @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+  int deleteExpired(LocalDateTime now);
+
+  @Transactional
+  @Modifying
+  @Query("delete from IdempotencyRecord r where r.key = :key and r.expiresAt < :now")
+  int deleteExpired(String key, LocalDateTime now);
+}
@@ -0,0 +1,7 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.entity.LoanDelinquency;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface LoanDelinquencyRepository extends JpaRepository<LoanDelinquency, Long> {
+}
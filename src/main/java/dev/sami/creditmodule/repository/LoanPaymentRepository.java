@@ -0,0 +1,14 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.entity.LoanPayment;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface LoanPaymentRepository extends JpaRepository<LoanPayment, Long> {
+
+  // Orders by the full (loan_id, first_installment) index prefix: H2 only reads rows in index order
+  // instead of sorting them when the ORDER BY starts with the leading index columns.
+  @Query("select p from LoanPayment p where p.loanId = :loanId order by p.loanId, p.firstInstallment")
+  List<LoanPayment> findByLoanIdOrderByFirstInstallment(Long loanId);
+}
@@ -1,10 +1,67 @@
 package dev.sami.creditmodule.repository;
 
+import dev.sami.creditmodule.config.CacheConfig;
 import dev.sami.creditmodule.entity.Loan;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+  /**
+   * Cached, for reads only: callers must not modify the returned loan or pay against it, see
+   * {@link #findUncachedById}. Loans only change through {@link #payInstallments}, which evicts them.
+   * The lookup is synchronized per loan, so an eviction at commit waits for a lookup that read the loan
+   * before the commit and removes what it cached instead of being overtaken by it.
+   */
+  @Override
+  @Cacheable(cacheNames = CacheConfig.LOANS, key = "#id", sync = true)
+  Optional<Loan> findById(Long id);
+
+  /**
+   * Reads the loan from the database, bypassing the cache, for payments settled against its current
+   * version.
+   */
+  @Query("select l from Loan l where l.id = :id")
+  Optional<Loan> findUncachedById(Long id);
+
+  /**
+   * Reads the loan's version from the database, bypassing the cache.
+   */
+  @Query("select l.version from Loan l where l.id = :id")
+  Optional<Long> findVersionById(Long id);
+
   List<Loan> findByCustomerId(Long customerId);
+
+  List<LoanCustomer> findByIdIn(Collection<Long> ids);
+
+  /**
+   * Moves the loan's paid installment counter forward by {@code count} and marks the loan paid once the
+   * last installment is paid, only if the loan is still at {@code version}, the version it was read at. Pending
+   * changes are flushed first and the persistence context is cleared, so a later read in the same
+   * transaction sees the new counter.
+   *
+   * @return 1 if the loan was updated, 0 if it was changed since it was read
+   */
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.LOANS, key = "#loanId")
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update Loan l set l.paidInstallments = l.paidInstallments + :count, "
+         + "l.isPaid = case when l.paidInstallments + :count = l.numberOfInstallments then true else false end, "
+         + "l.version = l.version + 1 "
+         + "where l.id = :loanId and l.version = :version")
+  int payInstallments(Long loanId, Long version, int count);
+
+  interface LoanCustomer {
+
+    Long getId();
+
+    Long getCustomerId();
+  }
 }
@@ -0,0 +1,182 @@
+package dev.sami.creditmodule.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO.Status;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applies loan payments asynchronously. Payments are routed to a shard by loan id and every shard has a
+ * single worker, so payments of one loan are applied one after another in submission order without
+ * competing for the loan's row. A worker takes everything queued on its shard and applies it in one
+ * transaction through {@link LoanService#payLoans}, one payment after another in queue order, so every
+ * payment settles exactly what it would have settled on its own and gets its own result. If the batch
+ * fails, each payment is replayed on its own so a bad payment only fails itself.
+ *
+ * <p>Callers get a {@link CompletableFuture} or poll the payment's status, which is kept for a bounded
+ * time after the payment is submitted.
+ */
+@Slf4j
+@Service
+public class AsyncPaymentService {
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  private final LoanService loanService;
+
+  private final ThreadFactory threadFactory;
+
+  private final int maxSettlementBatch;
+
+  private final List<BlockingQueue<QueuedPayment>> shards;
+
+  private final Cache<String, PaymentStatusDTO> statuses;
+
+  private ExecutorService executor;
+
+  public AsyncPaymentService(LoanService loanService, ThreadFactory asyncPaymentThreadFactory,
+                             @Value("${credit-module.payments.async.shards:8}") int shards,
+                             @Value("${credit-module.payments.async.queue-capacity:10000}") int queueCapacity,
+                             @Value("${credit-module.payments.async.max-batch:500}") int maxSettlementBatch,
+                             @Value("${credit-module.payments.async.status-spec:maximumSize=100000,expireAfterWrite=1h}")
+                             String statusSpec) {
+    this.loanService = loanService;
+    this.threadFactory = asyncPaymentThreadFactory;
+    this.maxSettlementBatch = maxSettlementBatch;
+    this.shards = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      this.shards.add(new ArrayBlockingQueue<>(queueCapacity));
+    }
+    this.statuses = Caffeine.from(statusSpec).build();
+  }
+
+  @PostConstruct
+  public void start() {
+    executor = Executors.newFixedThreadPool(shards.size(), threadFactory);
+    shards.forEach(shard -> executor.execute(() -> drain(shard)));
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (executor != null) {
+      executor.shutdownNow();
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Async payment workers did not stop within {} s", SHUTDOWN_TIMEOUT_SECONDS);
+      }
+    }
+    for (BlockingQueue<QueuedPayment> shard : shards) {
+      List<QueuedPayment> unsettled = new ArrayList<>();
+      shard.drainTo(unsettled);
+      unsettled.forEach(payment -> fail(payment, "Payment was not applied before shutdown"));
+    }
+  }
+
+  /**
+   * Queues a payment and returns its pending status; poll {@link #getStatus} with its id for the result.
+   *
+   * @throws RejectedExecutionException if the loan's shard is full
+   */
+  public PaymentStatusDTO submit(Long loanId, BigDecimal amount) {
+    return enqueue(loanId, amount).status();
+  }
+
+  /**
+   * Queues a payment and returns a future completed with its result.
+   *
+   * @throws RejectedExecutionException if the loan's shard is full
+   */
+  public CompletableFuture<PaymentResultDTO> pay(Long loanId, BigDecimal amount) {
+    return enqueue(loanId, amount).completion();
+  }
+
+  public Optional<PaymentStatusDTO> getStatus(String paymentId) {
+    return Optional.ofNullable(statuses.getIfPresent(paymentId));
+  }
+
+  private QueuedPayment enqueue(Long loanId, BigDecimal amount) {
+    if (loanId == null || amount == null || amount.signum() <= 0) {
+      throw new IllegalArgumentException("loanId and a positive amount are required");
+    }
+    QueuedPayment payment = new QueuedPayment(new PaymentStatusDTO(UUID.randomUUID().toString(), loanId, amount,
+                                                                   Status.PENDING, null, null),
+                                              new CompletableFuture<>());
+    statuses.put(payment.status().getId(), payment.status());
+    if (!shards.get(Math.floorMod(loanId.hashCode(), shards.size())).offer(payment)) {
+      statuses.invalidate(payment.status().getId());
+      throw new RejectedExecutionException("Payment queue of loan " + loanId + " is full");
+    }
+    return payment;
+  }
+
+  private void drain(BlockingQueue<QueuedPayment> shard) {
+    List<QueuedPayment> batch = new ArrayList<>(maxSettlementBatch);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        batch.add(shard.take());
+        shard.drainTo(batch, maxSettlementBatch - 1);
+        settle(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void settle(List<QueuedPayment> batch) {
+    List<PaymentRequestDTO> requests = new ArrayList<>(batch.size());
+    batch.forEach(payment -> requests.add(new PaymentRequestDTO(payment.status().getLoanId(),
+                                                                payment.status().getAmount())));
+
+    try {
+      List<PaymentResultDTO> results = loanService.payLoans(requests);
+      for (int i = 0; i < batch.size(); i++) {
+        complete(batch.get(i), results.get(i));
+      }
+    } catch (RuntimeException e) {
+      for (QueuedPayment payment : batch) {
+        try {
+          complete(payment, loanService.payLoan(payment.status().getLoanId(), payment.status().getAmount()));
+        } catch (RuntimeException paymentError) {
+          fail(payment, paymentError.getMessage());
+        }
+      }
+    }
+  }
+
+  private void complete(QueuedPayment payment, PaymentResultDTO result) {
+    PaymentStatusDTO status = payment.status();
+    statuses.put(status.getId(), new PaymentStatusDTO(status.getId(), status.getLoanId(), status.getAmount(),
+                                                      Status.COMPLETED, result, null));
+    payment.completion().complete(result);
+  }
+
+  private void fail(QueuedPayment payment, String error) {
+    PaymentStatusDTO status = payment.status();
+    statuses.put(status.getId(), new PaymentStatusDTO(status.getId(), status.getLoanId(), status.getAmount(),
+                                                      Status.FAILED, null, error));
+    payment.completion().completeExceptionally(new IllegalStateException(error));
+  }
+
+  private record QueuedPayment(PaymentStatusDTO status, CompletableFuture<PaymentResultDTO> completion) {
+  }
+}
@@ -0,0 +1,230 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.config.CacheConfig;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Optional in-memory ledger of used credit limits. Reservations are checked and applied under a lock
+ * stripe picked by customer id, so hot customers no longer serialize on their {@link Customer} row.
+ * Changed balances are written back to the database every {@code credit-module.ledger.flush-interval-ms}
+ * and on shutdown, and the ledger is loaded from the customer table once all beans are created, before the
+ * application accepts requests. The ledger is the source of truth for
+ * used credit while enabled, so it must only be enabled on a single application instance.
+ */
+@Slf4j
+@Component
+public class CreditLimitLedger implements SmartInitializingSingleton {
+
+  private final CustomerRepository customerRepository;
+
+  private final Cache customerCache;
+
+  private final TransactionOperations transactionOperations;
+
+  private final boolean enabled;
+
+  private final ReentrantLock[] stripes;
+
+  private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+  private final Set<Long> dirtyCustomerIds = ConcurrentHashMap.newKeySet();
+
+  public CreditLimitLedger(CustomerRepository customerRepository, CacheManager cacheManager,
+                           TransactionOperations transactionOperations,
+                           @Value("${credit-module.ledger.enabled:false}") boolean enabled,
+                           @Value("${credit-module.ledger.stripes:64}") int stripes) {
+    this.customerRepository = customerRepository;
+    this.customerCache = cacheManager.getCache(CacheConfig.CUSTOMERS);
+    this.transactionOperations = transactionOperations;
+    this.enabled = enabled;
+    this.stripes = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    rebuild();
+  }
+
+  /**
+   * Loads every customer the ledger does not hold yet. Accounts already in the ledger were loaded on their
+   * first adjustment and keep their balance, so no reservation made while loading is lost.
+   */
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    customerRepository.findAll()
+                      .forEach(customer -> accounts.putIfAbsent(customer.getId(), new Account(customer)));
+    log.info("Credit limit ledger loaded with {} customers", accounts.size());
+  }
+
+  /**
+   * Adds {@code amount} (negative to release) to the customer's used credit limit if the result stays
+   * between zero and the credit limit. Inside a transaction the adjustment is undone on rollback.
+   */
+  public boolean adjust(Long customerId, BigDecimal amount) {
+    Account account = account(customerId);
+    ReentrantLock lock = stripe(customerId);
+    lock.lock();
+    try {
+      BigDecimal used = account.used.add(amount);
+      if (used.signum() < 0 || used.compareTo(account.creditLimit) > 0) {
+        return false;
+      }
+      account.used = used;
+    } finally {
+      lock.unlock();
+    }
+    dirtyCustomerIds.add(customerId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_ROLLED_BACK) {
+            revert(customerId, account, amount);
+          }
+        }
+      });
+    }
+    return true;
+  }
+
+  public void updateCreditLimit(Long customerId, BigDecimal creditLimit) {
+    Account account = accounts.get(customerId);
+    if (account == null) {
+      return;
+    }
+    ReentrantLock lock = stripe(customerId);
+    lock.lock();
+    try {
+      account.creditLimit = creditLimit;
+    } finally {
+      lock.unlock();
+    }
+    // the caller saved the whole entity, possibly with a stale used credit limit
+    dirtyCustomerIds.add(customerId);
+  }
+
+  public void remove(Long customerId) {
+    accounts.remove(customerId);
+    dirtyCustomerIds.remove(customerId);
+  }
+
+  /**
+   * Writes the changed balances back in one transaction, started here so that it also applies when the
+   * ledger calls it on shutdown.
+   */
+  @Scheduled(fixedDelayString = "${credit-module.ledger.flush-interval-ms:100}")
+  public void flush() {
+    if (!enabled || dirtyCustomerIds.isEmpty()) {
+      return;
+    }
+    transactionOperations.executeWithoutResult(status -> writeBack());
+  }
+
+  private void writeBack() {
+    Map<Long, BigDecimal> snapshot = new HashMap<>();
+    List<Long> customerIds = new ArrayList<>(dirtyCustomerIds);
+    for (Long customerId : customerIds) {
+      dirtyCustomerIds.remove(customerId);
+      Account account = accounts.get(customerId);
+      if (account != null) {
+        snapshot.put(customerId, usedCreditLimit(customerId, account));
+      }
+    }
+    try {
+      List<Customer> customers = customerRepository.findAllById(snapshot.keySet());
+      customers.forEach(customer -> customer.setUsedCreditLimit(snapshot.get(customer.getId())));
+      customerRepository.saveAll(customers);
+      customerRepository.flush();
+      // cached customers were read before their balances reached the table
+      snapshot.keySet().forEach(customerCache::evict);
+    } catch (RuntimeException e) {
+      // keep the balances dirty so the next run retries them
+      dirtyCustomerIds.addAll(snapshot.keySet());
+      throw e;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (enabled && !dirtyCustomerIds.isEmpty()) {
+      flush();
+    }
+  }
+
+  private Account account(Long customerId) {
+    Account account = accounts.get(customerId);
+    if (account != null) {
+      return account;
+    }
+    Customer customer = customerRepository.findById(customerId)
+                                          .orElseThrow(() -> new RuntimeException("Customer not found"));
+    Account existing = accounts.putIfAbsent(customerId, new Account(customer));
+    return existing != null ? existing : accounts.get(customerId);
+  }
+
+  private BigDecimal usedCreditLimit(Long customerId, Account account) {
+    ReentrantLock lock = stripe(customerId);
+    lock.lock();
+    try {
+      return account.used;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void revert(Long customerId, Account account, BigDecimal amount) {
+    ReentrantLock lock = stripe(customerId);
+    lock.lock();
+    try {
+      account.used = account.used.subtract(amount);
+    } finally {
+      lock.unlock();
+    }
+    dirtyCustomerIds.add(customerId);
+  }
+
+  private ReentrantLock stripe(Long customerId) {
+    return stripes[Math.floorMod(Long.hashCode(customerId), stripes.length)];
+  }
+
+  private static final class Account {
+
+    private BigDecimal creditLimit;
+
+    private BigDecimal used;
+
+    private Account(Customer customer) {
+      this.creditLimit = customer.getCreditLimit();
+      this.used = customer.getUsedCreditLimit() != null ? customer.getUsedCreditLimit() : BigDecimal.ZERO;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Meters of loan, payment and credit operations. Timers and the per-payment distributions publish
+ * histogram buckets, so percentiles can be computed across instances from {@code /actuator/prometheus}.
+ * Tags only take a fixed set of values: outcomes are the constants below and installment counts are
+ * bounded by the loan terms.
+ */
+@Component
+public class CreditMetrics {
+
+  public static final String SUCCESS = "success";
+
+  public static final String NOTHING_PAID = "nothing_paid";
+
+  public static final String CONFLICT = "conflict";
+
+  public static final String ERROR = "error";
+
+  private final MeterRegistry meterRegistry;
+
+  private final DistributionSummary installmentsPerPayment;
+
+  private final DistributionSummary amountPerPayment;
+
+  public CreditMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.installmentsPerPayment = DistributionSummary.builder("credit.payment.installments")
+                                                     .description("Installments settled per payment")
+                                                     .serviceLevelObjectives(1, 2, 3, 6, 12, 24)
+                                                     .register(meterRegistry);
+    this.amountPerPayment = DistributionSummary.builder("credit.payment.amount")
+                                               .description("Amount spent on installments per payment")
+                                               .publishPercentileHistogram()
+                                               .minimumExpectedValue(1.0)
+                                               .maximumExpectedValue(1_000_000.0)
+                                               .register(meterRegistry);
+  }
+
+  public Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Records the creation once the surrounding transaction completes, so a creation whose commit fails is
+   * an error rather than a success.
+   */
+  public void loanCreated(Timer.Sample sample, String numberOfInstallments, String outcome) {
+    afterCompletion(committed -> sample.stop(timer("credit.loan.create", "installments", numberOfInstallments,
+                                                   "outcome", committedOutcome(committed, outcome))));
+  }
+
+  /**
+   * Records a batch creation once the surrounding transaction completes, like {@link #loanCreated}.
+   */
+  public void loansCreated(Timer.Sample sample, String outcome) {
+    afterCompletion(committed -> sample.stop(timer("credit.loan.create.batch",
+                                                   "outcome", committedOutcome(committed, outcome))));
+  }
+
+  public void loanPaid(Timer.Sample sample, String operation, String outcome) {
+    sample.stop(timer("credit.loan.pay", "operation", operation, "outcome", outcome));
+  }
+
+  /**
+   * Records a payment once the surrounding transaction commits, so a payment that is rolled back, or retried
+   * inside the transaction of an idempotent request, is not counted.
+   */
+  public void paymentSettled(PaymentResultDTO result) {
+    afterCompletion(committed -> {
+      if (committed) {
+        installmentsPerPayment.record(result.getInstallmentsPaid());
+        amountPerPayment.record(result.getTotalAmountPaid().doubleValue());
+      }
+    });
+  }
+
+  public void installmentsPaid(Timer.Sample sample, int installments, String outcome) {
+    sample.stop(timer("credit.installments.pay", "installments", String.valueOf(installments), "outcome", outcome));
+  }
+
+  public void creditAdjusted(Timer.Sample sample, String operation, String outcome) {
+    sample.stop(timer("credit.limit.adjust", "operation", operation, "outcome", outcome));
+  }
+
+  private static String committedOutcome(boolean committed, String outcome) {
+    return committed || !SUCCESS.equals(outcome) ? outcome : ERROR;
+  }
+
+  private static void afterCompletion(Consumer<Boolean> record) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      record.accept(true);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        record.accept(status == STATUS_COMMITTED);
+      }
+    });
+  }
+
+  private Timer timer(String name, String... tags) {
+    return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+  }
+}
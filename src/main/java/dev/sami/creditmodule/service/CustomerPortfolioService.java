@@ -0,0 +1,171 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
+import dev.sami.creditmodule.entity.CustomerPortfolio;
+import dev.sami.creditmodule.entity.CustomerPortfolioDue;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.repository.CustomerPortfolioRepository;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maintains the customer portfolio read model: a {@link CustomerPortfolio} row with the open loan count
+ * and outstanding amount, and one {@link CustomerPortfolioDue} row per date on which the customer has
+ * unpaid installments. Loan creation and payments add their deltas with batched {@code MERGE}s, one
+ * batch per table, so reading a portfolio never scans loans or installments. Every change also moves the
+ * portfolio's loans version, which tags the customer's loan list for conditional reads.
+ *
+ * <p>Changes are applied in the transaction of the loan change, so the projection and its version move
+ * with it. Nothing else serializes them: with the credit limit ledger enabled no customer row is locked,
+ * and two transactions may both insert the same missing row. The one that loses gets an
+ * {@link OptimisticLockingFailureException} and is started again by {@link OptimisticRetry}. Pending
+ * entity changes are flushed before the merges, so the portfolio rows are locked only from the last
+ * statements of the transaction to its commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class CustomerPortfolioService {
+
+  private static final String MERGE_PORTFOLIO = """
+      merge into customer_portfolio p
+      using (values (cast(? as bigint), cast(? as integer), cast(? as numeric(38, 2))))
+        d(customer_id, open_loans, outstanding_amount)
+      on p.customer_id = d.customer_id
+      when matched then update set open_loans = p.open_loans + d.open_loans,
+                                   outstanding_amount = p.outstanding_amount + d.outstanding_amount,
+                                   loans_version = p.loans_version + 1
+      when not matched then insert (customer_id, open_loans, outstanding_amount, loans_version)
+                            values (d.customer_id, d.open_loans, d.outstanding_amount, 1)""";
+
+  private static final String MERGE_DUE = """
+      merge into customer_portfolio_due p
+      using (values (cast(? as bigint), cast(? as date), cast(? as numeric(38, 2)))) d(customer_id, due_date, amount)
+      on p.customer_id = d.customer_id and p.due_date = d.due_date
+      when matched and p.amount + d.amount = 0 then delete
+      when matched then update set amount = p.amount + d.amount
+      when not matched then insert (customer_id, due_date, amount) values (d.customer_id, d.due_date, d.amount)""";
+
+  private static final Comparator<DueKey> DUE_ORDER = Comparator.comparing(DueKey::customerId)
+                                                                .thenComparing(DueKey::dueDate);
+
+  private final CustomerPortfolioRepository customerPortfolioRepository;
+
+  private final CustomerRepository customerRepository;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public CustomerPortfolioDTO getPortfolio(Long customerId) {
+    return customerPortfolioRepository.findPortfolio(customerId, LocalDate.now())
+                                      .orElseGet(() -> emptyPortfolio(customerId));
+  }
+
+  /**
+   * @return the change counter of the customer's loans, 0 if the customer has none
+   */
+  public long getLoansVersion(Long customerId) {
+    return customerPortfolioRepository.findLoansVersion(customerId).orElse(0L);
+  }
+
+  public void loansCreated(List<Loan> loans) {
+    Changes changes = new Changes();
+    for (Loan loan : loans) {
+      changes.addLoans(loan.getCustomerId(), 1);
+      changes.addInstallments(loan, 1, loan.getNumberOfInstallments(), BigDecimal.ONE);
+    }
+    changes.write();
+  }
+
+  public void installmentsPaid(List<PaidInstallments> payments) {
+    Changes changes = new Changes();
+    for (PaidInstallments payment : payments) {
+      Loan loan = payment.loan();
+      int lastInstallment = loan.getPaidInstallments() + payment.count();
+      changes.addInstallments(loan, loan.getPaidInstallments() + 1, lastInstallment, BigDecimal.ONE.negate());
+      if (lastInstallment == loan.getNumberOfInstallments()) {
+        changes.addLoans(loan.getCustomerId(), -1);
+      }
+    }
+    changes.write();
+  }
+
+  private CustomerPortfolioDTO emptyPortfolio(Long customerId) {
+    if (!customerRepository.existsById(customerId)) {
+      throw new RuntimeException("Customer not found");
+    }
+    return new CustomerPortfolioDTO(customerId, 0, BigDecimal.ZERO, null, BigDecimal.ZERO);
+  }
+
+  /**
+   * {@code count} installments of {@code loan} were paid; {@code loan} holds its state before the payment.
+   */
+  public record PaidInstallments(Loan loan, int count) {
+  }
+
+  private record DueKey(Long customerId, LocalDate dueDate) {
+  }
+
+  private static class PortfolioDelta {
+
+    private int openLoans;
+
+    private BigDecimal outstandingAmount = BigDecimal.ZERO;
+  }
+
+  /**
+   * Deltas summed per row and written in key order, so concurrent batches lock rows in the same order.
+   */
+  private class Changes {
+
+    private final Map<Long, PortfolioDelta> portfolios = new TreeMap<>();
+
+    private final Map<DueKey, BigDecimal> dueAmounts = new TreeMap<>(DUE_ORDER);
+
+    void addLoans(Long customerId, int count) {
+      portfolios.computeIfAbsent(customerId, id -> new PortfolioDelta()).openLoans += count;
+    }
+
+    void addInstallments(Loan loan, int firstInstallment, int lastInstallment, BigDecimal sign) {
+      BigDecimal installmentAmount = loan.getInstallmentAmount().multiply(sign);
+      PortfolioDelta portfolio = portfolios.computeIfAbsent(loan.getCustomerId(), id -> new PortfolioDelta());
+      for (int number = firstInstallment; number <= lastInstallment; number++) {
+        portfolio.outstandingAmount = portfolio.outstandingAmount.add(installmentAmount);
+        DueKey key = new DueKey(loan.getCustomerId(), LoanInstallmentService.getDueDate(loan, number));
+        dueAmounts.merge(key, installmentAmount, BigDecimal::add);
+      }
+    }
+
+    void write() {
+      List<Object[]> portfolioRows = new ArrayList<>(portfolios.size());
+      portfolios.forEach((customerId, delta) ->
+                             portfolioRows.add(new Object[] {customerId, delta.openLoans, delta.outstandingAmount}));
+      List<Object[]> dueRows = new ArrayList<>(dueAmounts.size());
+      dueAmounts.forEach((key, amount) -> {
+        if (amount.signum() != 0) {
+          dueRows.add(new Object[] {key.customerId(), key.dueDate(), amount});
+        }
+      });
+      customerPortfolioRepository.flush();
+      try {
+        if (!portfolioRows.isEmpty()) {
+          jdbcTemplate.batchUpdate(MERGE_PORTFOLIO, portfolioRows);
+        }
+        if (!dueRows.isEmpty()) {
+          jdbcTemplate.batchUpdate(MERGE_DUE, dueRows);
+        }
+      } catch (DuplicateKeyException e) {
+        throw new OptimisticLockingFailureException("Portfolio rows were created by a concurrent transaction", e);
+      }
+    }
+  }
+}
@@ -1,73 +1,143 @@
 package dev.sami.creditmodule.service;
 
+import dev.sami.creditmodule.config.CacheConfig;
 import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.dto.CustomerPageDTO;
 import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.exception.LoanRejectedException;
+import dev.sami.creditmodule.mapper.CustomerMapper;
 import dev.sami.creditmodule.repository.CustomerRepository;
+import io.micrometer.core.instrument.Timer;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
 
+  private static final int MAX_PAGE_SIZE = 1000;
+
   private final CustomerRepository customerRepository;
 
-  private final ModelMapper modelMapper;
+  private final CustomerMapper customerMapper;
+
+  private final CreditLimitLedger creditLimitLedger;
+
+  private final OptimisticRetry optimisticRetry;
+
+  private final CreditMetrics creditMetrics;
 
   public CustomerDTO createCustomer(CustomerDTO customerDTO) {
-    Customer customer = modelMapper.map(customerDTO, Customer.class);
+    Customer customer = customerMapper.toEntity(customerDTO);
     Customer createdCustomer = customerRepository.save(customer);
-    return modelMapper.map(createdCustomer, CustomerDTO.class);
+    return customerMapper.toDto(createdCustomer);
   }
 
+  @Cacheable(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
   public CustomerDTO getCustomerById(Long customerId) {
     Customer customer = customerRepository.findById(customerId)
                                           .orElseThrow(() -> new RuntimeException("Customer not found"));
-    return modelMapper.map(customer, CustomerDTO.class);
+    return customerMapper.toDto(customer);
+  }
+
+  public CustomerPageDTO getCustomers(Long afterId, int size) {
+    int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize));
+    Long nextAfterId = customers.size() == pageSize ? customers.get(customers.size() - 1).getId() : null;
+    return new CustomerPageDTO(customerMapper.toDtos(customers), nextAfterId);
   }
 
-  public List<CustomerDTO> getAllCustomers() {
-    List<Customer> customers = customerRepository.findAll();
-    return customers.stream()
-                    .map(customer -> modelMapper.map(customer, CustomerDTO.class))
-                    .toList();
+  /**
+   * @return the ids of the customers that exist, read in one query
+   */
+  public Set<Long> getExistingCustomerIds(Collection<Long> customerIds) {
+    return Set.copyOf(customerRepository.findIdsByIdIn(customerIds));
   }
 
+  @Transactional(readOnly = true)
+  public void streamAllCustomers(Consumer<CustomerDTO> consumer) {
+    try (Stream<CustomerDTO> customers = customerRepository.streamAllOrderById()) {
+      customers.forEach(consumer);
+    }
+  }
+
+  /**
+   * Updates the customer in its own transaction, started again if its credit changed since it was read.
+   */
+  @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
   public CustomerDTO updateCustomer(Long customerId, CustomerDTO updatedCustomerDTO) {
+    return optimisticRetry.execute("updateCustomer", () -> applyUpdate(customerId, updatedCustomerDTO));
+  }
+
+  private CustomerDTO applyUpdate(Long customerId, CustomerDTO updatedCustomerDTO) {
     Customer customer = customerRepository.findById(customerId)
                                           .orElseThrow(() -> new RuntimeException("Customer not found"));
     customer.setName(updatedCustomerDTO.getName());
     customer.setSurname(updatedCustomerDTO.getSurname());
     customer.setCreditLimit(updatedCustomerDTO.getCreditLimit());
     Customer updatedCustomer = customerRepository.save(customer);
-    return modelMapper.map(updatedCustomer, CustomerDTO.class);
+    if (creditLimitLedger.isEnabled()) {
+      creditLimitLedger.updateCreditLimit(customerId, updatedCustomer.getCreditLimit());
+    }
+    return customerMapper.toDto(updatedCustomer);
   }
 
+  @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
   public void deleteCustomer(Long customerId) {
     customerRepository.deleteById(customerId);
+    if (creditLimitLedger.isEnabled()) {
+      creditLimitLedger.remove(customerId);
+    }
   }
 
-  public boolean validateCreditLimit(Long customerId, BigDecimal loanAmount) {
-    Customer customer = customerRepository.findById(customerId)
-                                          .orElseThrow(() -> new RuntimeException("Customer not found"));
-    BigDecimal availableCredit = customer.getCreditLimit().subtract(customer.getUsedCreditLimit());
-    return availableCredit.compareTo(loanAmount) >= 0;
+  @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
+  public boolean reserveCredit(Long customerId, BigDecimal amount) {
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      boolean reserved = adjustUsedCreditLimit(customerId, amount);
+      outcome = reserved ? CreditMetrics.SUCCESS : LoanRejectedException.LIMIT;
+      return reserved;
+    } finally {
+      creditMetrics.creditAdjusted(sample, "reserve", outcome);
+    }
   }
 
-  public void updateUsedCreditLimit(Long customerId, BigDecimal amount) {
-    Customer customer = customerRepository.findById(customerId)
-                                          .orElseThrow(() -> new RuntimeException("Customer not found"));
-    BigDecimal newCreditLimit = customer.getUsedCreditLimit().add(amount);
-    if (newCreditLimit.compareTo(BigDecimal.ZERO) < 0) {
-      throw new IllegalArgumentException("Credit limit cannot be negative");
+  @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
+  public void releaseCredit(Long customerId, BigDecimal amount) {
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      if (!adjustUsedCreditLimit(customerId, amount.negate())) {
+        outcome = LoanRejectedException.LIMIT;
+        throw new IllegalArgumentException("Credit limit cannot be negative");
+      }
+      outcome = CreditMetrics.SUCCESS;
+    } finally {
+      creditMetrics.creditAdjusted(sample, "release", outcome);
+    }
+  }
+
+  private boolean adjustUsedCreditLimit(Long customerId, BigDecimal amount) {
+    if (creditLimitLedger.isEnabled()) {
+      return creditLimitLedger.adjust(customerId, amount);
+    }
+    if (customerRepository.adjustUsedCreditLimit(customerId, amount) == 1) {
+      return true;
     }
-    if (newCreditLimit.compareTo(customer.getCreditLimit()) > 0) {
-      throw new IllegalArgumentException("Used credit limit cannot exceed total credit limit");
+    if (!customerRepository.existsById(customerId)) {
+      throw new RuntimeException("Customer not found");
     }
-    customer.setUsedCreditLimit(newCreditLimit);
-    customerRepository.save(customer);
+    return false;
   }
 }
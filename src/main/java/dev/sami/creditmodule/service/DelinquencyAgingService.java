@@ -0,0 +1,213 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.entity.CustomerDelinquency;
+import dev.sami.creditmodule.entity.DelinquencyRun;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.entity.LoanDelinquency;
+import dev.sami.creditmodule.repository.DelinquencyRunRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ages overdue installments into 1-30, 31-60, 61-90 and over 90 days buckets per loan
+ * ({@link LoanDelinquency}) and per customer ({@link CustomerDelinquency}). Installments are derived, so
+ * the run scans unpaid loans instead: their unpaid installments are the last ones of the schedule.
+ *
+ * <p>Unpaid loans are split by id into keyset chunks of {@code credit-module.delinquency.chunk-size}
+ * loans. Chunk boundaries are read one after another and the chunks are aged in parallel on a
+ * fork-join pool, each writing its loans with one batched {@code MERGE}. After every wave of chunks the
+ * highest aged loan id is saved as a {@link DelinquencyRun} checkpoint, so a run of the same date
+ * started again after a failure resumes behind it; chunks of an unfinished wave are aged again, which
+ * the {@code MERGE} makes harmless. Customer totals are summed from the loan rows once all chunks are
+ * done.
+ *
+ * <p>The run only reads the loan table, without locks, and writes its own tables, so it never blocks
+ * payments.
+ */
+@Slf4j
+@Service
+public class DelinquencyAgingService {
+
+  private static final String NEXT_CHUNK_END = """
+      select max(id) from (select id from loan where is_paid = false and id > ? order by id limit ?)""";
+
+  private static final String SELECT_CHUNK = """
+      select id, customer_id, create_date, number_of_installments, paid_installments, installment_amount
+      from loan where id > ? and id <= ? and is_paid = false""";
+
+  private static final String MERGE_LOAN = """
+      merge into loan_delinquency
+      (loan_id, customer_id, as_of_date, overdue_1_30, overdue_31_60, overdue_61_90, overdue_over_90)
+      key (loan_id) values (?, ?, ?, ?, ?, ?, ?)""";
+
+  private static final String MERGE_CUSTOMERS = """
+      merge into customer_delinquency c
+      using (select customer_id, sum(overdue_1_30) overdue_1_30, sum(overdue_31_60) overdue_31_60,
+                    sum(overdue_61_90) overdue_61_90, sum(overdue_over_90) overdue_over_90
+             from loan_delinquency where as_of_date = ? group by customer_id) d
+      on c.customer_id = d.customer_id
+      when matched then update set as_of_date = ?, overdue_1_30 = d.overdue_1_30,
+                                   overdue_31_60 = d.overdue_31_60, overdue_61_90 = d.overdue_61_90,
+                                   overdue_over_90 = d.overdue_over_90
+      when not matched then insert (customer_id, as_of_date, overdue_1_30, overdue_31_60, overdue_61_90,
+                                    overdue_over_90)
+                            values (d.customer_id, ?, d.overdue_1_30, d.overdue_31_60, d.overdue_61_90,
+                                    d.overdue_over_90)""";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final DelinquencyRunRepository delinquencyRunRepository;
+
+  private final int parallelism;
+
+  private final int chunkSize;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  public DelinquencyAgingService(JdbcTemplate jdbcTemplate, DelinquencyRunRepository delinquencyRunRepository,
+                                 @Value("${credit-module.delinquency.parallelism:4}") int parallelism,
+                                 @Value("${credit-module.delinquency.chunk-size:1000}") int chunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.delinquencyRunRepository = delinquencyRunRepository;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Runs on every tick of {@code credit-module.delinquency.cron}; once today's run is complete, the
+   * remaining ticks of the day only read its checkpoint, and an interrupted run is resumed.
+   */
+  @Scheduled(cron = "${credit-module.delinquency.cron:0 15 * * * *}")
+  public void ageToday() {
+    age(LocalDate.now());
+  }
+
+  /**
+   * Ages all unpaid loans as of {@code asOfDate}, resuming the date's run if it was interrupted.
+   *
+   * @return false if the date was already aged or another run is in progress
+   */
+  public boolean age(LocalDate asOfDate) {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      DelinquencyRun run = delinquencyRunRepository.findById(asOfDate)
+                                                   .orElseGet(() -> new DelinquencyRun(asOfDate, 0L, null));
+      if (run.getCompletedAt() != null) {
+        return false;
+      }
+      long startNanos = System.nanoTime();
+      int loans = ageChunks(run);
+      int customers = jdbcTemplate.update(MERGE_CUSTOMERS, asOfDate, asOfDate, asOfDate);
+      jdbcTemplate.update("delete from customer_delinquency where as_of_date < ?", asOfDate);
+      jdbcTemplate.update("delete from loan_delinquency where as_of_date < ?", asOfDate);
+      run.setCompletedAt(LocalDateTime.now());
+      delinquencyRunRepository.save(run);
+      log.info("Aged {} overdue loans of {} customers as of {} in {} ms", loans, customers, asOfDate,
+               TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      return true;
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private int ageChunks(DelinquencyRun run) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      int overdueLoans = 0;
+      long afterId = run.getLastLoanId();
+      while (true) {
+        List<Callable<Integer>> wave = new ArrayList<>(parallelism);
+        long waveEnd = afterId;
+        for (int i = 0; i < parallelism; i++) {
+          Long chunkEnd = jdbcTemplate.queryForObject(NEXT_CHUNK_END, Long.class, waveEnd, chunkSize);
+          if (chunkEnd == null) {
+            break;
+          }
+          long chunkStart = waveEnd;
+          wave.add(() -> ageChunk(chunkStart, chunkEnd, run.getAsOfDate()));
+          waveEnd = chunkEnd;
+        }
+        if (wave.isEmpty()) {
+          return overdueLoans;
+        }
+        for (Future<Integer> chunk : pool.invokeAll(wave)) {
+          overdueLoans += chunk.get();
+        }
+        afterId = waveEnd;
+        run.setLastLoanId(afterId);
+        delinquencyRunRepository.save(run);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Delinquency aging was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Delinquency aging failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Ages the unpaid loans with {@code afterId < id <= lastId}.
+   *
+   * @return the number of overdue loans written
+   */
+  private int ageChunk(long afterId, long lastId, LocalDate asOfDate) {
+    List<Object[]> rows = new ArrayList<>();
+    jdbcTemplate.query(SELECT_CHUNK, resultSet -> {
+      Loan loan = Loan.builder()
+                      .id(resultSet.getLong("id"))
+                      .customerId(resultSet.getLong("customer_id"))
+                      .createDate(resultSet.getObject("create_date", LocalDate.class))
+                      .numberOfInstallments(resultSet.getInt("number_of_installments"))
+                      .paidInstallments(resultSet.getInt("paid_installments"))
+                      .installmentAmount(resultSet.getBigDecimal("installment_amount"))
+                      .build();
+      BigDecimal[] buckets = overdueAmounts(loan, asOfDate);
+      if (buckets != null) {
+        rows.add(new Object[] {loan.getId(), loan.getCustomerId(), asOfDate, buckets[0], buckets[1], buckets[2],
+                               buckets[3]});
+      }
+    }, afterId, lastId);
+    if (!rows.isEmpty()) {
+      jdbcTemplate.batchUpdate(MERGE_LOAN, rows);
+    }
+    return rows.size();
+  }
+
+  /**
+   * @return the loan's overdue amounts by bucket, or null if nothing is overdue
+   */
+  static BigDecimal[] overdueAmounts(Loan loan, LocalDate asOfDate) {
+    BigDecimal[] buckets = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+    boolean overdue = false;
+    for (int number = loan.getPaidInstallments() + 1; number <= loan.getNumberOfInstallments(); number++) {
+      LocalDate dueDate = LoanInstallmentService.getDueDate(loan, number);
+      if (!dueDate.isBefore(asOfDate)) {
+        break;
+      }
+      long daysOverdue = ChronoUnit.DAYS.between(dueDate, asOfDate);
+      int bucket = daysOverdue <= 30 ? 0 : daysOverdue <= 60 ? 1 : daysOverdue <= 90 ? 2 : 3;
+      buckets[bucket] = buckets[bucket].add(loan.getInstallmentAmount());
+      overdue = true;
+    }
+    return overdue ? buckets : null;
+  }
+}
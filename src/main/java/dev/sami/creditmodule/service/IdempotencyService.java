@@ -0,0 +1,212 @@
+package dev.sami.creditmodule.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.sami.creditmodule.entity.IdempotencyRecord;
+import dev.sami.creditmodule.exception.IdempotencyKeyException;
+import dev.sami.creditmodule.repository.IdempotencyRecordRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applies a request sent with an {@code Idempotency-Key} at most once and replays its response to retries.
+ *
+ * <p>The first request claims its key with an insert into {@code idempotency_record}, committed at once so
+ * concurrent retries see it, then runs in a transaction that also stores its response on the claimed row.
+ * The write and its stored response commit together: if the request fails or the process dies before the
+ * commit, neither is kept. A claim is a lease of {@code credit-module.idempotency.lease-seconds}: a failed
+ * request releases it, and a claim left behind by a process that died is taken over by the first retry
+ * after it expires. Each claim carries a token and a response is only stored for the token holding the
+ * claim, so a request still running when its claim was taken over rolls back instead of committing a
+ * second time. Only successful responses are kept. Completed responses are also held in a bounded
+ * in-memory LRU, so most retries are answered without any query and none of them touches the loan or
+ * customer tables. Records expire after {@code credit-module.idempotency.ttl-minutes} and are purged in
+ * the background.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  static final int MAX_KEY_LENGTH = 255;
+
+  private static final String CLAIM = """
+      insert into idempotency_record (idempotency_key, fingerprint, claim_token, expires_at) values (?, ?, ?, ?)""";
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  private final OptimisticRetry optimisticRetry;
+
+  private final Duration ttl;
+
+  private final Duration lease;
+
+  private final Cache<String, IdempotencyRecord> completed;
+
+  public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, JdbcTemplate jdbcTemplate,
+                            ObjectMapper objectMapper, OptimisticRetry optimisticRetry,
+                            @Value("${credit-module.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${credit-module.idempotency.lease-seconds:60}") long leaseSeconds,
+                            @Value("${credit-module.idempotency.cache-spec:maximumSize=10000}") String cacheSpec) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+    this.optimisticRetry = optimisticRetry;
+    this.ttl = Duration.ofMinutes(ttlMinutes);
+    this.lease = Duration.ofSeconds(leaseSeconds);
+    this.completed = Caffeine.from(cacheSpec).build();
+  }
+
+  /**
+   * Runs {@code request} once per key, or replays the response it returned the first time the key was
+   * used. With a key, the request runs in a transaction that its writes join, started again if it loses
+   * an optimistic locking race. Without a key the request simply runs.
+   *
+   * @param fingerprint operation and parameters of the request; a key can only be reused with the same one
+   * @throws IdempotencyKeyException if the key is invalid, was used for another request, or its first
+   *                                 request is still running
+   */
+  public <T> ResponseEntity<T> execute(String key, String fingerprint, Class<T> responseType,
+                                       Supplier<ResponseEntity<T>> request) {
+    if (key == null) {
+      return request.get();
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                                        "Idempotency-Key must have 1 to " + MAX_KEY_LENGTH + " characters");
+    }
+    Optional<IdempotencyRecord> previous = find(key);
+    if (previous.isPresent()) {
+      return replay(previous.get(), fingerprint, responseType);
+    }
+    String claimToken = UUID.randomUUID().toString();
+    if (!claim(key, fingerprint, claimToken)) {
+      return replay(find(key).orElseThrow(() -> inProgress(key)), fingerprint, responseType);
+    }
+    Stored<T> stored;
+    try {
+      stored = optimisticRetry.execute("idempotentRequest", () -> runAndStore(key, fingerprint, claimToken, request));
+    } catch (RuntimeException e) {
+      idempotencyRecordRepository.release(key, claimToken);
+      throw e;
+    }
+    if (stored.record() != null) {
+      completed.put(key, stored.record());
+    }
+    return stored.response();
+  }
+
+  @Scheduled(fixedDelayString = "${credit-module.idempotency.purge-interval-ms:60000}")
+  public void purgeExpired() {
+    int purged = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    if (purged > 0) {
+      log.debug("Purged {} expired idempotency records", purged);
+    }
+  }
+
+  private Optional<IdempotencyRecord> find(String key) {
+    IdempotencyRecord record = completed.getIfPresent(key);
+    if (record == null) {
+      record = idempotencyRecordRepository.findById(key).orElse(null);
+    }
+    if (record == null || record.getExpiresAt().isBefore(LocalDateTime.now())) {
+      completed.invalidate(key);
+      return Optional.empty();
+    }
+    if (record.getStatus() != null) {
+      completed.put(key, record);
+    }
+    return Optional.of(record);
+  }
+
+  /**
+   * @return false if the key is held by another request
+   */
+  private boolean claim(String key, String fingerprint, String claimToken) {
+    try {
+      jdbcTemplate.update(CLAIM, key, fingerprint, claimToken, LocalDateTime.now().plus(lease));
+      return true;
+    } catch (DuplicateKeyException e) {
+      if (idempotencyRecordRepository.deleteExpired(key, LocalDateTime.now()) == 0) {
+        return false;
+      }
+      return claim(key, fingerprint, claimToken);
+    }
+  }
+
+  /**
+   * Runs the request and stores its response on the claim, in the transaction of the request's writes.
+   */
+  private <T> Stored<T> runAndStore(String key, String fingerprint, String claimToken,
+                                    Supplier<ResponseEntity<T>> request) {
+    ResponseEntity<T> response = request.get();
+    if (!response.getStatusCode().is2xxSuccessful()) {
+      idempotencyRecordRepository.release(key, claimToken);
+      return new Stored<>(response, null);
+    }
+    String body;
+    try {
+      body = response.getBody() == null ? null : objectMapper.writeValueAsString(response.getBody());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Response of Idempotency-Key " + key + " cannot be stored", e);
+    }
+    int status = response.getStatusCode().value();
+    LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+    if (idempotencyRecordRepository.complete(key, claimToken, status, body, expiresAt) != 1) {
+      throw new IdempotencyKeyException(HttpStatus.CONFLICT, "The claim of Idempotency-Key " + key
+                                                             + " expired and was taken over by a retry");
+    }
+    return new Stored<>(response, IdempotencyRecord.builder()
+                                                   .key(key)
+                                                   .fingerprint(fingerprint)
+                                                   .status(status)
+                                                   .body(body)
+                                                   .expiresAt(expiresAt)
+                                                   .build());
+  }
+
+  private <T> ResponseEntity<T> replay(IdempotencyRecord record, String fingerprint, Class<T> responseType) {
+    if (!record.getFingerprint().equals(fingerprint)) {
+      throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                        "Idempotency-Key " + record.getKey() + " was used for a different request");
+    }
+    if (record.getStatus() == null) {
+      throw inProgress(record.getKey());
+    }
+    try {
+      T body = record.getBody() == null ? null : objectMapper.readValue(record.getBody(), responseType);
+      return ResponseEntity.status(record.getStatus()).header(REPLAYED_HEADER, "true").body(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Stored response of Idempotency-Key " + record.getKey() + " is unreadable", e);
+    }
+  }
+
+  private static IdempotencyKeyException inProgress(String key) {
+    return new IdempotencyKeyException(HttpStatus.CONFLICT,
+                                       "A request with Idempotency-Key " + key + " is still in progress");
+  }
+
+  /**
+   * A response and, if it was stored, its record.
+   */
+  private record Stored<T>(ResponseEntity<T> response, IdempotencyRecord record) {
+  }
+}
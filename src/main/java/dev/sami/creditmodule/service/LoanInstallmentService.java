@@ -1,48 +1,115 @@
 package dev.sami.creditmodule.service;
 
+import dev.sami.creditmodule.dto.LoanInstallmentDTO;
 import dev.sami.creditmodule.dto.PaidInstallmentsDTO;
-import dev.sami.creditmodule.entity.LoanInstallment;
-import dev.sami.creditmodule.repository.LoanInstallmentRepository;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.entity.LoanPayment;
+import dev.sami.creditmodule.repository.LoanPaymentRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import io.micrometer.core.instrument.Timer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+/**
+ * Installments are not stored. All installments of a loan have the same amount, fall due on the first
+ * day of each month after the loan was created and are paid in order, so a loan only keeps its
+ * installment amount and how many installments are paid. Every payment that settles installments is
+ * recorded as a {@link LoanPayment}, which is where paid installments get their payment date.
+ */
 @Service
 @RequiredArgsConstructor
 public class LoanInstallmentService {
 
-  private final LoanInstallmentRepository installmentRepository;
+  private final LoanRepository loanRepository;
 
-  public void createInstallment(LoanInstallment installment) {
-    installmentRepository.save(installment);
-  }
+  private final LoanPaymentRepository loanPaymentRepository;
 
-  public List<LoanInstallment> getInstallmentsByLoan(Long loanId) {
-    return installmentRepository.findByLoanIdOrderByDueDate(loanId);
-  }
+  private final CreditMetrics creditMetrics;
+
+  /**
+   * Derives the loan's installments, numbered from 1 in due date order. The installment number is
+   * returned as the installment id.
+   */
+  public List<LoanInstallmentDTO> getInstallments(Loan loan) {
+    int numberOfInstallments = loan.getNumberOfInstallments();
+    LocalDate[] paymentDates = new LocalDate[numberOfInstallments + 1];
+    if (loan.getPaidInstallments() > 0) {
+      for (LoanPayment payment : loanPaymentRepository.findByLoanIdOrderByFirstInstallment(loan.getId())) {
+        int lastInstallment = payment.getFirstInstallment() + payment.getInstallmentsPaid() - 1;
+        for (int number = payment.getFirstInstallment(); number <= lastInstallment; number++) {
+          paymentDates[number] = payment.getPaymentDate();
+        }
+      }
+    }
 
-  public List<LoanInstallment> getPendingInstallments(Long loanId) {
-    return installmentRepository.findByLoanIdAndIsPaidFalseOrderByDueDate(loanId);
+    BigDecimal unpaidAmount = BigDecimal.ZERO.setScale(loan.getInstallmentAmount().scale());
+    List<LoanInstallmentDTO> installments = new ArrayList<>(numberOfInstallments);
+    for (int number = 1; number <= numberOfInstallments; number++) {
+      boolean paid = number <= loan.getPaidInstallments();
+      LoanInstallmentDTO installment = new LoanInstallmentDTO();
+      installment.setId((long) number);
+      installment.setLoanId(loan.getId());
+      installment.setAmount(loan.getInstallmentAmount());
+      installment.setPaidAmount(paid ? loan.getInstallmentAmount() : unpaidAmount);
+      installment.setDueDate(getDueDate(loan, number));
+      installment.setPaymentDate(paymentDates[number]);
+      installment.setIsPaid(paid);
+      installments.add(installment);
+    }
+    return installments;
   }
 
-  public PaidInstallmentsDTO payInstallments(List<LoanInstallment> pendingInstallments, BigDecimal amount) {
-    BigDecimal remainingAmount = amount;
-    int paidInstallmentCount = 0;
-    for (LoanInstallment installment : pendingInstallments) {
-      if (remainingAmount.compareTo(installment.getAmount()) >= 0) {
-        BigDecimal installmentAmount = installment.getAmount();
-        installment.setPaidAmount(installmentAmount);
-        installment.setPaymentDate(LocalDate.now());
-        installment.setIsPaid(true);
-        remainingAmount = remainingAmount.subtract(installmentAmount);
-        installmentRepository.save(installment);
-        paidInstallmentCount++;
-      } else {
-        break;
+  /**
+   * Pays, in due date order, the unpaid installments due before {@code dueBefore} that {@code amount}
+   * fully covers. The loan's counter is moved with one update conditional on the loan's version and the
+   * payment is recorded with one insert, however many installments it covers.
+   *
+   * @throws ObjectOptimisticLockingFailureException if the loan was changed since it was read
+   */
+  public PaidInstallmentsDTO payInstallments(Loan loan, BigDecimal amount, LocalDate dueBefore) {
+    Timer.Sample sample = creditMetrics.start();
+    int installmentCount = 0;
+    String outcome = CreditMetrics.ERROR;
+    try {
+      int paidInstallments = loan.getPaidInstallments();
+      int payableInstallments = 0;
+      while (paidInstallments + payableInstallments < loan.getNumberOfInstallments()
+             && getDueDate(loan, paidInstallments + payableInstallments + 1).isBefore(dueBefore)) {
+        payableInstallments++;
       }
+
+      long installmentAmount = Money.fromAmount(loan.getInstallmentAmount());
+      installmentCount = Money.coveredInstallments(Money.fromPayment(amount), installmentAmount, payableInstallments);
+      if (installmentCount == 0) {
+        outcome = CreditMetrics.NOTHING_PAID;
+        return new PaidInstallmentsDTO(0, BigDecimal.ZERO);
+      }
+
+      if (loanRepository.payInstallments(loan.getId(), loan.getVersion(), installmentCount) != 1) {
+        outcome = CreditMetrics.CONFLICT;
+        throw new ObjectOptimisticLockingFailureException(Loan.class, loan.getId());
+      }
+      BigDecimal amountSpent = Money.toAmount(Money.settled(installmentAmount, installmentCount));
+      loanPaymentRepository.save(LoanPayment.builder()
+                                            .loanId(loan.getId())
+                                            .firstInstallment(paidInstallments + 1)
+                                            .installmentsPaid(installmentCount)
+                                            .amount(amountSpent)
+                                            .paymentDate(LocalDate.now())
+                                            .build());
+      outcome = CreditMetrics.SUCCESS;
+      return new PaidInstallmentsDTO(installmentCount, amountSpent);
+    } finally {
+      creditMetrics.installmentsPaid(sample, installmentCount, outcome);
     }
-    return new PaidInstallmentsDTO(paidInstallmentCount, amount.subtract(remainingAmount));
+  }
+
+  static LocalDate getDueDate(Loan loan, int installmentNumber) {
+    return loan.getCreateDate().plusMonths(installmentNumber).withDayOfMonth(1);
   }
 }
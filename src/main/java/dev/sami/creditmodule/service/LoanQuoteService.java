@@ -0,0 +1,70 @@
+package dev.sami.creditmodule.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.sami.creditmodule.dto.LoanQuoteDTO;
+import dev.sami.creditmodule.dto.LoanQuoteRequestDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Quotes loans with the validation and schedule math of {@link LoanService#createLoan}, without reading or
+ * writing anything. Computed terms are kept in a bounded cache keyed by the amount in cents, the interest
+ * rate and the installment count, so repeated offers are looked up rather than computed again. The cache
+ * publishes its hits and misses as {@code cache.*} metrics tagged {@code cache=loanQuotes}.
+ */
+@Service
+public class LoanQuoteService {
+
+  static final String CACHE_NAME = "loanQuotes";
+
+  private final Cache<QuoteKey, LoanTerms> terms;
+
+  public LoanQuoteService(MeterRegistry meterRegistry,
+                          @Value("${credit-module.quotes.cache-spec:maximumSize=10000,recordStats}") String cacheSpec) {
+    this.terms = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.from(cacheSpec).build(), CACHE_NAME);
+  }
+
+  /**
+   * @return one quote per combination of amount, interest rate and installment count, in request order with
+   *     installment counts varying fastest; rejected combinations carry the error instead of amounts
+   */
+  public List<LoanQuoteDTO> quote(LoanQuoteRequestDTO request) {
+    List<LoanQuoteDTO> quotes = new ArrayList<>(
+        request.getAmounts().size() * request.getInterestRates().size() * request.getNumberOfInstallments().size());
+    for (BigDecimal amount : request.getAmounts()) {
+      long principal = Money.fromAmount(amount);
+      for (Double interestRate : request.getInterestRates()) {
+        for (Integer numberOfInstallments : request.getNumberOfInstallments()) {
+          quotes.add(quote(amount, principal, interestRate, numberOfInstallments));
+        }
+      }
+    }
+    return quotes;
+  }
+
+  private LoanQuoteDTO quote(BigDecimal amount, long principal, double interestRate, int numberOfInstallments) {
+    LoanQuoteDTO quote = new LoanQuoteDTO();
+    quote.setAmount(amount);
+    quote.setInterestRate(interestRate);
+    quote.setNumberOfInstallments(numberOfInstallments);
+    try {
+      LoanTerms loanTerms = terms.get(new QuoteKey(principal, interestRate, numberOfInstallments),
+                                      key -> LoanTerms.of(amount, interestRate, numberOfInstallments));
+      quote.setLoanAmount(Money.toAmount(loanTerms.total()));
+      quote.setInstallmentAmount(Money.toAmount(loanTerms.installment()));
+      quote.setTotalRepayment(loanTerms.credit());
+    } catch (IllegalArgumentException e) {
+      quote.setError(e.getMessage());
+    }
+    return quote;
+  }
+
+  private record QuoteKey(long principal, double interestRate, int numberOfInstallments) {
+  }
+}
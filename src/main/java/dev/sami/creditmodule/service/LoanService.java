@@ -1,19 +1,34 @@
 package dev.sami.creditmodule.service;
 
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
 import dev.sami.creditmodule.dto.LoanDTO;
 import dev.sami.creditmodule.dto.LoanInstallmentDTO;
 import dev.sami.creditmodule.dto.PaidInstallmentsDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
 import dev.sami.creditmodule.dto.PaymentResultDTO;
 import dev.sami.creditmodule.entity.Loan;
-import dev.sami.creditmodule.entity.LoanInstallment;
+import dev.sami.creditmodule.exception.LoanRejectedException;
+import dev.sami.creditmodule.mapper.LoanMapper;
 import dev.sami.creditmodule.repository.LoanRepository;
+import dev.sami.creditmodule.repository.LoanRepository.LoanCustomer;
+import dev.sami.creditmodule.service.CustomerPortfolioService.PaidInstallments;
+import io.micrometer.core.instrument.Timer;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -25,81 +40,284 @@ public class LoanService {
 
   private final CustomerService customerService;
 
-  private final ModelMapper modelMapper;
+  private final CustomerPortfolioService customerPortfolioService;
 
+  private final LoanMapper loanMapper;
+
+  private final OptimisticRetry optimisticRetry;
+
+  private final CreditMetrics creditMetrics;
+
+  /**
+   * Creates the loan in its own transaction, started again if a concurrent change of the customer's
+   * portfolio created its rows first.
+   */
   public LoanDTO createLoan(Long customerId, BigDecimal amount, Double interestRate, int numberOfInstallments) {
-    if (interestRate < 0.1 || interestRate > 0.5) {
-      throw new IllegalArgumentException("Interest rate must be between 0.1 and 0.5");
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      LoanTerms terms = LoanTerms.of(amount, interestRate, numberOfInstallments);
+      LoanDTO loan = optimisticRetry.execute("createLoan", () -> applyLoan(customerId, terms));
+      outcome = CreditMetrics.SUCCESS;
+      return loan;
+    } catch (LoanRejectedException e) {
+      outcome = e.getReason();
+      throw e;
+    } finally {
+      String installments = LoanTerms.INSTALLMENT_OPTIONS.contains(numberOfInstallments)
+                            ? String.valueOf(numberOfInstallments) : "other";
+      creditMetrics.loanCreated(sample, installments, outcome);
+    }
+  }
+
+  private LoanDTO applyLoan(Long customerId, LoanTerms terms) {
+    if (!customerService.reserveCredit(customerId, terms.credit())) {
+      throw new LoanRejectedException(LoanRejectedException.LIMIT, "Customer does not have enough credit limit");
     }
-    if (!List.of(6, 9, 12, 24).contains(numberOfInstallments)) {
-      throw new IllegalArgumentException("Number of installments must be 6, 9, 12, or 24");
+
+    Loan loan = loanRepository.save(buildLoan(customerId, terms));
+    customerPortfolioService.loansCreated(List.of(loan));
+    return loanMapper.toDto(loan);
+  }
+
+  /**
+   * Creates many loans at once. Applications are grouped by customer and credit is reserved once per
+   * customer, in customer id order so concurrent batches lock customer rows in the same order; if a
+   * customer cannot cover the whole group, its applications are reserved one by one in submission order. Applications of customers that do not exist are rejected up front, so a reservation
+   * only fails for lack of credit and any other failure rolls back the whole batch. All accepted loans are
+   * written with batched inserts. The batch runs in its own transaction, started again if a concurrent
+   * change of a customer's portfolio created its rows first.
+   *
+   * @return one result per application, in the same order, holding either the loan or the error
+   */
+  public List<LoanBatchResultDTO> createLoans(List<LoanApplicationDTO> applications) {
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      List<LoanBatchResultDTO> results = optimisticRetry.execute("createLoans", () -> createBatch(applications));
+      outcome = CreditMetrics.SUCCESS;
+      return results;
+    } finally {
+      creditMetrics.loansCreated(sample, outcome);
+    }
+  }
+
+  private List<LoanBatchResultDTO> createBatch(List<LoanApplicationDTO> applications) {
+    LoanBatchResultDTO[] results = new LoanBatchResultDTO[applications.size()];
+    LoanTerms[] terms = new LoanTerms[applications.size()];
+    Map<Long, List<Integer>> indexesByCustomer = new TreeMap<>();
+    for (int i = 0; i < applications.size(); i++) {
+      LoanApplicationDTO application = applications.get(i);
+      try {
+        validateApplication(application);
+        terms[i] = LoanTerms.of(application.getAmount(), application.getInterestRate(),
+                                application.getNumberOfInstallments());
+        indexesByCustomer.computeIfAbsent(application.getCustomerId(), customerId -> new ArrayList<>()).add(i);
+      } catch (IllegalArgumentException e) {
+        results[i] = new LoanBatchResultDTO(i, null, e.getMessage());
+      }
     }
 
-    BigDecimal totalAmount = amount.multiply(BigDecimal.valueOf(1 + interestRate));
-    if (!customerService.validateCreditLimit(customerId, totalAmount)) {
-      throw new IllegalArgumentException("Customer does not have enough credit limit");
+    Set<Long> existingCustomerIds = customerService.getExistingCustomerIds(indexesByCustomer.keySet());
+    List<Integer> acceptedIndexes = new ArrayList<>();
+    indexesByCustomer.forEach((customerId, indexes) -> {
+      if (existingCustomerIds.contains(customerId)) {
+        acceptedIndexes.addAll(reserveCredit(customerId, indexes, terms, results));
+      } else {
+        indexes.forEach(index -> results[index] = new LoanBatchResultDTO(index, null, "Customer not found"));
+      }
+    });
+
+    List<Loan> loans = new ArrayList<>(acceptedIndexes.size());
+    for (int index : acceptedIndexes) {
+      loans.add(buildLoan(applications.get(index).getCustomerId(), terms[index]));
     }
+    loans = loanRepository.saveAll(loans);
+    customerPortfolioService.loansCreated(loans);
 
-    Loan loan = Loan.builder()
-                    .customerId(customerId)
-                    .loanAmount(totalAmount.setScale(2, RoundingMode.HALF_UP))
-                    .numberOfInstallments(numberOfInstallments)
-                    .isPaid(false)
-                    .createDate(LocalDate.now())
-                    .build();
-
-    loan = loanRepository.save(loan);
-
-    for (int i = 1; i <= numberOfInstallments; i++) {
-      LoanInstallment installment = LoanInstallment.builder()
-                                                   .loanId(loan.getId())
-                                                   .amount(totalAmount.divide(BigDecimal.valueOf(numberOfInstallments),
-                                                                              RoundingMode.HALF_UP))
-                                                   .paidAmount(BigDecimal.ZERO)
-                                                   .isPaid(false)
-                                                   .dueDate(LocalDate.now().plusMonths(i).withDayOfMonth(1))
-                                                   .build();
-      loanInstallmentService.createInstallment(installment);
+    for (int i = 0; i < loans.size(); i++) {
+      int index = acceptedIndexes.get(i);
+      results[index] = new LoanBatchResultDTO(index, loanMapper.toDto(loans.get(i)), null);
     }
 
-    customerService.updateUsedCreditLimit(customerId, totalAmount);
-    return modelMapper.map(loan, LoanDTO.class);
+    return Arrays.asList(results);
+  }
+
+  /**
+   * @return a counter moved by every creation and payment of the customer's loans
+   */
+  public long getLoansVersion(Long customerId) {
+    return customerPortfolioService.getLoansVersion(customerId);
+  }
+
+  /**
+   * @return the loan's committed version, moved by every payment of the loan, read past the loan cache;
+   *     empty if the loan does not exist
+   */
+  public Optional<Long> getLoanVersion(Long loanId) {
+    return loanRepository.findVersionById(loanId);
   }
 
+  /**
+   * @return the customer id of each of the loans that exists, by loan id, read in one query
+   */
+  public Map<Long, Long> getCustomerIds(Collection<Long> loanIds) {
+    return loanRepository.findByIdIn(loanIds).stream()
+                         .collect(Collectors.toMap(LoanCustomer::getId, LoanCustomer::getCustomerId));
+  }
+
+  @Transactional(readOnly = true)
   public List<LoanDTO> getLoansByCustomer(Long customerId) {
     List<Loan> loans = loanRepository.findByCustomerId(customerId);
-    return loans.stream()
-                .map(loan -> modelMapper.map(loan, LoanDTO.class))
-                .toList();
+    return loanMapper.toDtos(loans);
   }
 
   public List<LoanInstallmentDTO> getInstallmentsByLoan(Long loanId) {
-    List<LoanInstallment> installments = loanInstallmentService.getInstallmentsByLoan(loanId);
-    return installments.stream()
-                       .map(installment -> modelMapper.map(installment, LoanInstallmentDTO.class))
-                       .toList();
+    return loanRepository.findById(loanId)
+                         .map(loanInstallmentService::getInstallments)
+                         .orElse(List.of());
   }
 
+  /**
+   * @return the installments of the loan at {@code version} or a later one: the cached loan if it is that
+   *     recent, otherwise the loan read from the database
+   */
+  public List<LoanInstallmentDTO> getInstallmentsByLoan(Long loanId, long version) {
+    return loanRepository.findById(loanId)
+                         .filter(loan -> loan.getVersion() >= version)
+                         .or(() -> loanRepository.findUncachedById(loanId))
+                         .map(loanInstallmentService::getInstallments)
+                         .orElse(List.of());
+  }
+
+  /**
+   * Pays the loan in its own transaction, started again if another payment of the loan committed first.
+   */
   public PaymentResultDTO payLoan(Long loanId, BigDecimal amount) {
-    Loan loan = loanRepository.findById(loanId)
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      PaymentResultDTO result = optimisticRetry.execute("payLoan", () -> applyPayment(loanId, amount));
+      creditMetrics.paymentSettled(result);
+      outcome = result.getInstallmentsPaid() > 0 ? CreditMetrics.SUCCESS : CreditMetrics.NOTHING_PAID;
+      return result;
+    } catch (OptimisticLockingFailureException e) {
+      outcome = CreditMetrics.CONFLICT;
+      throw e;
+    } finally {
+      creditMetrics.loanPaid(sample, "payLoan", outcome);
+    }
+  }
+
+  private PaymentResultDTO applyPayment(Long loanId, BigDecimal amount) {
+    Settlement settlement = settle(loanId, amount);
+    if (settlement.result().getInstallmentsPaid() > 0) {
+      customerService.releaseCredit(settlement.loan().getCustomerId(), settlement.result().getTotalAmountPaid());
+      customerPortfolioService.installmentsPaid(List.of(settlement.paidInstallments()));
+    }
+    return settlement.result();
+  }
+
+  /**
+   * Applies several payments in one transaction, in list order. The credit they free is summed per
+   * customer and released once per customer in id order, so concurrent batches lock customer rows in the
+   * same order. Any failure rolls back the whole batch; if a loan was paid concurrently, the whole batch
+   * is started again in a new transaction.
+   *
+   * @return one result per payment, in the same order
+   */
+  public List<PaymentResultDTO> payLoans(List<PaymentRequestDTO> payments) {
+    Timer.Sample sample = creditMetrics.start();
+    String outcome = CreditMetrics.ERROR;
+    try {
+      List<PaymentResultDTO> results = optimisticRetry.execute("payLoans", () -> applyPayments(payments));
+      results.forEach(creditMetrics::paymentSettled);
+      outcome = CreditMetrics.SUCCESS;
+      return results;
+    } catch (OptimisticLockingFailureException e) {
+      outcome = CreditMetrics.CONFLICT;
+      throw e;
+    } finally {
+      creditMetrics.loanPaid(sample, "payLoans", outcome);
+    }
+  }
+
+  private List<PaymentResultDTO> applyPayments(List<PaymentRequestDTO> payments) {
+    List<PaymentResultDTO> results = new ArrayList<>(payments.size());
+    Map<Long, BigDecimal> releasedCredit = new TreeMap<>();
+    List<PaidInstallments> paidInstallments = new ArrayList<>();
+    for (PaymentRequestDTO payment : payments) {
+      Settlement settlement = settle(payment.getLoanId(), payment.getAmount());
+      if (settlement.result().getInstallmentsPaid() > 0) {
+        releasedCredit.merge(settlement.loan().getCustomerId(), settlement.result().getTotalAmountPaid(),
+                             BigDecimal::add);
+        paidInstallments.add(settlement.paidInstallments());
+      }
+      results.add(settlement.result());
+    }
+    releasedCredit.forEach(customerService::releaseCredit);
+    customerPortfolioService.installmentsPaid(paidInstallments);
+    return results;
+  }
+
+  private Settlement settle(Long loanId, BigDecimal amount) {
+    Loan loan = loanRepository.findUncachedById(loanId)
                               .orElseThrow(() -> new RuntimeException("Loan not found"));
 
-    List<LoanInstallment> unpaidInstallments = loanInstallmentService.getPendingInstallments(loanId);
+    int unpaidInstallments = loan.getNumberOfInstallments() - loan.getPaidInstallments();
+    PaidInstallmentsDTO paymentResponse =
+        loanInstallmentService.payInstallments(loan, amount, LocalDate.now().plusMonths(3));
 
-    List<LoanInstallment> pendingInstallments =
-        unpaidInstallments.stream()
-                          .filter(installment -> installment.getDueDate().isBefore(LocalDate.now().plusMonths(3)))
-                          .toList();
+    boolean loanFullyPaid = unpaidInstallments == paymentResponse.getInstallmentsPaid();
 
-    PaidInstallmentsDTO paymentResponse = loanInstallmentService.payInstallments(pendingInstallments, amount);
+    return new Settlement(loan,
+                          new PaymentResultDTO(paymentResponse.getInstallmentsPaid(),
+                                               paymentResponse.getAmountSpent(), loanFullyPaid));
+  }
 
-    boolean loanFullyPaid = unpaidInstallments.size() == paymentResponse.getInstallmentsPaid();
-    if (loanFullyPaid) {
-      loan.setIsPaid(true);
-      loanRepository.save(loan);
+  private List<Integer> reserveCredit(Long customerId, List<Integer> indexes, LoanTerms[] terms,
+                                      LoanBatchResultDTO[] results) {
+    long groupCredit = 0;
+    for (int index : indexes) {
+      groupCredit = Math.addExact(groupCredit, terms[index].reserved());
+    }
+    if (customerService.reserveCredit(customerId, Money.toAmount(groupCredit))) {
+      return indexes;
+    }
+    List<Integer> acceptedIndexes = new ArrayList<>();
+    for (int index : indexes) {
+      if (customerService.reserveCredit(customerId, terms[index].credit())) {
+        acceptedIndexes.add(index);
+      } else {
+        results[index] = new LoanBatchResultDTO(index, null, "Customer does not have enough credit limit");
+      }
     }
+    return acceptedIndexes;
+  }
 
-    customerService.updateUsedCreditLimit(loan.getCustomerId(), paymentResponse.getAmountSpent().negate());
-    return new PaymentResultDTO(paymentResponse.getInstallmentsPaid(), paymentResponse.getAmountSpent(), loanFullyPaid);
+  private void validateApplication(LoanApplicationDTO application) {
+    if (application.getCustomerId() == null || application.getAmount() == null
+        || application.getInterestRate() == null || application.getNumberOfInstallments() == null) {
+      throw new IllegalArgumentException("customerId, amount, interestRate and numberOfInstallments are required");
+    }
+  }
+
+  private Loan buildLoan(Long customerId, LoanTerms terms) {
+    return Loan.builder()
+               .customerId(customerId)
+               .loanAmount(Money.toAmount(terms.total()))
+               .numberOfInstallments(terms.numberOfInstallments())
+               .installmentAmount(Money.toAmount(terms.installment()))
+               .paidInstallments(0)
+               .isPaid(false)
+               .createDate(LocalDate.now())
+               .build();
+  }
+
+  private record Settlement(Loan loan, PaymentResultDTO result) {
+
+    PaidInstallments paidInstallments() {
+      return new PaidInstallments(loan, result.getInstallmentsPaid());
+    }
   }
 }
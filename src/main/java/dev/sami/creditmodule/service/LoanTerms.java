@@ -0,0 +1,40 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.exception.LoanRejectedException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Loan amount and installment amount of a loan application, in cents; see {@link Money} for the rounding
+ * rules. The credit reserved for the loan is what its installments sum to.
+ */
+record LoanTerms(long total, long installment, int numberOfInstallments, long reserved) {
+
+  static final List<Integer> INSTALLMENT_OPTIONS = List.of(6, 9, 12, 24);
+
+  /**
+   * @throws LoanRejectedException if the interest rate or the number of installments is not offered
+   */
+  static LoanTerms of(BigDecimal amount, double interestRate, int numberOfInstallments) {
+    validate(interestRate, numberOfInstallments);
+    long principal = Money.fromAmount(amount);
+    long rate = Money.rate(interestRate);
+    long installment = Money.installment(principal, rate, numberOfInstallments);
+    return new LoanTerms(Money.totalWithInterest(principal, rate), installment, numberOfInstallments,
+                         Money.settled(installment, numberOfInstallments));
+  }
+
+  private static void validate(double interestRate, int numberOfInstallments) {
+    if (interestRate < 0.1 || interestRate > 0.5) {
+      throw new LoanRejectedException(LoanRejectedException.INVALID_RATE, "Interest rate must be between 0.1 and 0.5");
+    }
+    if (!INSTALLMENT_OPTIONS.contains(numberOfInstallments)) {
+      throw new LoanRejectedException(LoanRejectedException.INVALID_INSTALLMENTS,
+                                      "Number of installments must be 6, 9, 12, or 24");
+    }
+  }
+
+  BigDecimal credit() {
+    return Money.toAmount(reserved);
+  }
+}
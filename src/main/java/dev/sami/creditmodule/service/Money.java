@@ -0,0 +1,101 @@
+package dev.sami.creditmodule.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Loan schedule and settlement arithmetic on {@code long} minor units (cents), so it allocates nothing.
+ * Amounts are converted from and to {@link BigDecimal} only where they enter or leave the services.
+ *
+ * <p>Rounding rules:
+ * <ul>
+ *   <li>Principal amounts are rounded half up to whole cents, payment amounts are truncated, so a payment
+ *   never settles more than was paid.</li>
+ *   <li>Interest rates are rounded half up to millionths.</li>
+ *   <li>The loan amount is the principal with interest, rounded half up to cents. Installments all have the
+ *   same amount: the exact loan amount divided by their number, rounded half up to cents. The installments
+ *   may sum to a few cents more or less than the loan amount; credit is reserved for what they sum to, so
+ *   paying off a loan releases exactly the credit it reserved.</li>
+ * </ul>
+ * Every operation fails with an {@link ArithmeticException} instead of overflowing.
+ */
+public final class Money {
+
+  public static final int SCALE = 2;
+
+  static final long RATE_UNITS = 1_000_000;
+
+  private Money() {
+  }
+
+  /**
+   * @return the amount in cents, rounded half up
+   */
+  public static long fromAmount(BigDecimal amount) {
+    return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  /**
+   * @return the payment amount in cents, truncated
+   */
+  public static long fromPayment(BigDecimal amount) {
+    return amount.setScale(SCALE, RoundingMode.DOWN).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toAmount(long cents) {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  /**
+   * @return the interest rate in millionths, rounded half up
+   */
+  public static long rate(double interestRate) {
+    return Math.round(interestRate * RATE_UNITS);
+  }
+
+  /**
+   * @return the principal with interest, in cents
+   */
+  public static long totalWithInterest(long principal, long rate) {
+    return divideHalfUp(Math.multiplyExact(principal, RATE_UNITS + rate), RATE_UNITS);
+  }
+
+  /**
+   * @return the amount of each of {@code numberOfInstallments} installments of the principal with interest,
+   *     in cents
+   */
+  public static long installment(long principal, long rate, int numberOfInstallments) {
+    return divideHalfUp(Math.multiplyExact(principal, RATE_UNITS + rate),
+                        Math.multiplyExact(RATE_UNITS, numberOfInstallments));
+  }
+
+  /**
+   * @return how many of the {@code payableInstallments} next installments {@code payment} fully covers;
+   *     all of them if the installments are free
+   */
+  public static int coveredInstallments(long payment, long installment, int payableInstallments) {
+    if (installment <= 0) {
+      return payableInstallments;
+    }
+    if (payment <= 0) {
+      return 0;
+    }
+    return (int) Math.min(payment / installment, payableInstallments);
+  }
+
+  /**
+   * @return the amount settled by paying {@code count} installments, in cents
+   */
+  public static long settled(long installment, int count) {
+    return Math.multiplyExact(installment, count);
+  }
+
+  private static long divideHalfUp(long dividend, long divisor) {
+    long quotient = dividend / divisor;
+    long remainder = dividend % divisor;
+    if (Math.abs(remainder) * 2 >= divisor) {
+      quotient += Long.signum(dividend);
+    }
+    return quotient;
+  }
+}
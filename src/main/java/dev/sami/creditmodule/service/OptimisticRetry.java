@@ -0,0 +1,89 @@
+package dev.sami.creditmodule.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs a unit of work in its own transaction and runs it again in a new transaction when it loses an
+ * optimistic locking race, up to {@code credit-module.retry.max-attempts} times. Attempts are separated by
+ * a random delay below an exponentially growing bound (full jitter), so writers that collided do not
+ * collide again in lockstep.
+ *
+ * <p>Work called inside a transaction that is already running is not retried: it joins that transaction,
+ * which cannot be rolled back and restarted from here, so the conflict is left to whoever started it.
+ *
+ * <p>Every conflict is counted as {@code credit.optimistic.conflicts} and every new attempt as
+ * {@code credit.optimistic.retries}, both tagged with the operation.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+
+  private final TransactionOperations transactionOperations;
+
+  private final MeterRegistry meterRegistry;
+
+  private final int maxAttempts;
+
+  private final long initialBackoffMs;
+
+  private final long maxBackoffMs;
+
+  public OptimisticRetry(TransactionOperations transactionOperations, MeterRegistry meterRegistry,
+                         @Value("${credit-module.retry.max-attempts:5}") int maxAttempts,
+                         @Value("${credit-module.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                         @Value("${credit-module.retry.max-backoff-ms:200}") long maxBackoffMs) {
+    this.transactionOperations = transactionOperations;
+    this.meterRegistry = meterRegistry;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+  }
+
+  /**
+   * @throws OptimisticLockingFailureException if the last attempt still conflicted
+   */
+  public <T> T execute(String operation, Supplier<T> work) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return work.get();
+    }
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionOperations.execute(status -> work.get());
+      } catch (OptimisticLockingFailureException e) {
+        counter("credit.optimistic.conflicts", operation).increment();
+        if (attempt >= maxAttempts) {
+          log.warn("{} gave up after {} conflicting attempts", operation, attempt);
+          throw e;
+        }
+        counter("credit.optimistic.retries", operation).increment();
+        backOff(attempt);
+      }
+    }
+  }
+
+  private void backOff(int attempt) {
+    long bound = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+    if (bound <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting to retry", e);
+    }
+  }
+
+  private Counter counter(String name, String operation) {
+    return meterRegistry.counter(name, "operation", operation);
+  }
+}
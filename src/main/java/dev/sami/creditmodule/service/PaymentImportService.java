@@ -0,0 +1,308 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.PaymentImportReportDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applies bulk payment files. Records are streamed from the input a chunk at a time, the customers of the
+ * chunk's loans are looked up in one query and every record is routed to a partition by its loan's
+ * customer, so all payments of a customer are applied in file order by the same worker and no two workers
+ * contend for the same loan or customer row. Records of unknown loans are routed by loan id and rejected by
+ * their worker. Each worker commits its payments in chunks through {@link LoanService#payLoans}; a chunk that
+ * fails is replayed payment by payment so a single bad record only rejects itself.
+ *
+ * <p>Two input formats are accepted: CSV lines of {@code loanId,amount} with an optional header, and binary
+ * records of two big-endian longs, the loan id and the amount in minor units (cents).
+ *
+ * <p>Workers of all imports run on one pool owned by the service, so threads are kept between imports
+ * instead of started for each. Reading waits for room in a full partition only while the import's workers
+ * are alive: an import whose worker failed fails instead of blocking forever.
+ */
+@Slf4j
+@Service
+public class PaymentImportService {
+
+  static final int BINARY_RECORD_SIZE = 2 * Long.BYTES;
+
+  static final int MAX_REPORTED_ERRORS = 100;
+
+  private static final PaymentRecord END_OF_INPUT = new PaymentRecord(0, null, null);
+
+  private static final long WORKER_CHECK_MILLIS = 100;
+
+  private final LoanService loanService;
+
+  private final int parallelism;
+
+  private final int chunkSize;
+
+  private final int queueCapacity;
+
+  private final ExecutorService executor;
+
+  public PaymentImportService(LoanService loanService, ThreadFactory paymentImportThreadFactory,
+                              @Value("${credit-module.payments.import.parallelism:4}") int parallelism,
+                              @Value("${credit-module.payments.import.chunk-size:500}") int chunkSize,
+                              @Value("${credit-module.payments.import.queue-capacity:10000}") int queueCapacity) {
+    this.loanService = loanService;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+    this.queueCapacity = queueCapacity;
+    this.executor = Executors.newCachedThreadPool(paymentImportThreadFactory);
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  public PaymentImportReportDTO importCsv(InputStream input) {
+    BufferedReader reader = new BufferedReader(Channels.newReader(Channels.newChannel(input), StandardCharsets.UTF_8),
+                                               64 * 1024);
+    return importPayments((sink, report) -> readCsv(reader, sink, report));
+  }
+
+  public PaymentImportReportDTO importBinary(InputStream input) {
+    ReadableByteChannel channel = Channels.newChannel(input);
+    return importPayments((sink, report) -> readBinary(channel, sink, report));
+  }
+
+  private PaymentImportReportDTO importPayments(PaymentSource source) {
+    long start = System.nanoTime();
+    ImportReport report = new ImportReport();
+    List<BlockingQueue<PaymentRecord>> partitions = new ArrayList<>(parallelism);
+    List<Future<?>> workers = new ArrayList<>(parallelism);
+    List<PaymentRecord> pending = new ArrayList<>(chunkSize);
+    try {
+      for (int i = 0; i < parallelism; i++) {
+        BlockingQueue<PaymentRecord> partition = new ArrayBlockingQueue<>(queueCapacity);
+        partitions.add(partition);
+        workers.add(executor.submit(() -> drain(partition, report)));
+      }
+      source.read(payment -> {
+        pending.add(payment);
+        if (pending.size() == chunkSize) {
+          route(pending, partitions, workers);
+          pending.clear();
+        }
+      }, report);
+      route(pending, partitions, workers);
+      for (BlockingQueue<PaymentRecord> partition : partitions) {
+        put(partition, END_OF_INPUT, workers);
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Payment file could not be read", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Payment import interrupted", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Payment import failed", e.getCause());
+    } finally {
+      workers.forEach(worker -> worker.cancel(true));
+    }
+
+    PaymentImportReportDTO result = report.toDto(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    log.info("Imported payment file: {} records, {} applied, {} rejected in {} ms", result.getRecordsRead(),
+             result.getPaymentsApplied(), result.getPaymentsRejected(), result.getDurationMillis());
+    return result;
+  }
+
+  private void route(List<PaymentRecord> payments, List<BlockingQueue<PaymentRecord>> partitions,
+                     List<Future<?>> workers) throws InterruptedException {
+    if (payments.isEmpty()) {
+      return;
+    }
+    Map<Long, Long> customerIds = loanService.getCustomerIds(payments.stream().map(PaymentRecord::loanId)
+                                                                     .collect(Collectors.toSet()));
+    for (PaymentRecord payment : payments) {
+      Long routingKey = customerIds.getOrDefault(payment.loanId(), payment.loanId());
+      put(partitions.get(Math.floorMod(routingKey.hashCode(), parallelism)), payment, workers);
+    }
+  }
+
+  /**
+   * Waits for room in the partition as long as every worker is running.
+   */
+  private static void put(BlockingQueue<PaymentRecord> partition, PaymentRecord payment, List<Future<?>> workers)
+      throws InterruptedException {
+    while (!partition.offer(payment, WORKER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+      for (Future<?> worker : workers) {
+        if (worker.isDone()) {
+          try {
+            worker.get();
+          } catch (ExecutionException e) {
+            throw new RuntimeException("Payment import failed", e.getCause());
+          }
+          throw new IllegalStateException("Payment import worker stopped before the end of the input");
+        }
+      }
+    }
+  }
+
+  private void readCsv(BufferedReader reader, PaymentSink sink, ImportReport report)
+      throws IOException, InterruptedException {
+    long lineNumber = 0;
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      lineNumber++;
+      line = line.strip();
+      if (line.isEmpty() || (lineNumber == 1 && !Character.isDigit(line.charAt(0)))) {
+        continue;
+      }
+      report.recordRead();
+      int comma = line.indexOf(',');
+      PaymentRecord payment;
+      try {
+        payment = new PaymentRecord(lineNumber, Long.valueOf(line.substring(0, Math.max(comma, 0)).strip()),
+                                    new BigDecimal(line.substring(comma + 1).strip()));
+      } catch (NumberFormatException e) {
+        report.reject(lineNumber, "Malformed payment line");
+        continue;
+      }
+      sink.accept(payment);
+    }
+  }
+
+  private void readBinary(ReadableByteChannel channel, PaymentSink sink, ImportReport report)
+      throws IOException, InterruptedException {
+    ByteBuffer buffer = ByteBuffer.allocate(BINARY_RECORD_SIZE * 4096);
+    long recordNumber = 0;
+    while (channel.read(buffer) >= 0) {
+      buffer.flip();
+      while (buffer.remaining() >= BINARY_RECORD_SIZE) {
+        recordNumber++;
+        report.recordRead();
+        sink.accept(new PaymentRecord(recordNumber, buffer.getLong(), BigDecimal.valueOf(buffer.getLong(), 2)));
+      }
+      buffer.compact();
+    }
+    if (buffer.position() > 0) {
+      report.recordRead();
+      report.reject(recordNumber + 1, "Truncated payment record");
+    }
+  }
+
+  private void drain(BlockingQueue<PaymentRecord> partition, ImportReport report) {
+    List<PaymentRecord> chunk = new ArrayList<>(chunkSize);
+    try {
+      for (PaymentRecord payment = partition.take(); payment != END_OF_INPUT; payment = partition.take()) {
+        chunk.add(payment);
+        if (chunk.size() == chunkSize) {
+          apply(chunk, report);
+          chunk.clear();
+        }
+      }
+      apply(chunk, report);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void apply(List<PaymentRecord> chunk, ImportReport report) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    try {
+      report.applied(loanService.payLoans(chunk.stream().map(PaymentRecord::toRequest).toList()));
+    } catch (RuntimeException e) {
+      for (PaymentRecord payment : chunk) {
+        try {
+          report.applied(List.of(loanService.payLoan(payment.loanId(), payment.amount())));
+        } catch (RuntimeException paymentError) {
+          report.reject(payment.recordNumber(), paymentError.getMessage());
+        }
+      }
+    }
+  }
+
+  private record PaymentRecord(long recordNumber, Long loanId, BigDecimal amount) {
+
+    PaymentRequestDTO toRequest() {
+      return new PaymentRequestDTO(loanId, amount);
+    }
+  }
+
+  @FunctionalInterface
+  private interface PaymentSink {
+
+    void accept(PaymentRecord payment) throws InterruptedException;
+  }
+
+  @FunctionalInterface
+  private interface PaymentSource {
+
+    void read(PaymentSink sink, ImportReport report) throws IOException, InterruptedException;
+  }
+
+  private static class ImportReport {
+
+    private long recordsRead;
+
+    private long paymentsApplied;
+
+    private long paymentsRejected;
+
+    private long installmentsPaid;
+
+    private BigDecimal totalAmountPaid = BigDecimal.ZERO;
+
+    private long loansFullyPaid;
+
+    private final List<String> errors = new ArrayList<>();
+
+    synchronized void recordRead() {
+      recordsRead++;
+    }
+
+    synchronized void applied(List<PaymentResultDTO> results) {
+      for (PaymentResultDTO result : results) {
+        paymentsApplied++;
+        installmentsPaid += result.getInstallmentsPaid();
+        totalAmountPaid = totalAmountPaid.add(result.getTotalAmountPaid());
+        if (result.isLoanFullyPaid()) {
+          loansFullyPaid++;
+        }
+      }
+    }
+
+    synchronized void reject(long recordNumber, String message) {
+      paymentsRejected++;
+      if (errors.size() < MAX_REPORTED_ERRORS) {
+        errors.add("Record " + recordNumber + ": " + message);
+      }
+    }
+
+    synchronized PaymentImportReportDTO toDto(long durationMillis) {
+      return new PaymentImportReportDTO(recordsRead, paymentsApplied, paymentsRejected, installmentsPaid,
+                                        totalAmountPaid, loansFullyPaid, durationMillis, List.copyOf(errors));
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package dev.sami.creditmodule;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.LoanInstallmentDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.LoanService;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DurableProfileTest {
+
+  @TempDir
+  private Path dataDir;
+
+  @Test
+  void durableProfile_ShouldKeepLoansAcrossRestarts() {
+    Long customerId;
+    LoanDTO loan;
+    try (ConfigurableApplicationContext context = start()) {
+      customerId = context.getBean(CustomerRepository.class)
+                          .save(Customer.builder()
+                                        .name("Durable")
+                                        .surname("Customer")
+                                        .creditLimit(new BigDecimal("10000"))
+                                        .usedCreditLimit(BigDecimal.ZERO)
+                                        .build())
+                          .getId();
+      loan = context.getBean(LoanService.class).createLoan(customerId, new BigDecimal("1200"), 0.2, 12);
+      context.getBean(LoanService.class).payLoan(loan.getId(), new BigDecimal("120.00"));
+    }
+
+    try (ConfigurableApplicationContext context = start()) {
+      LoanService loanService = context.getBean(LoanService.class);
+      List<LoanDTO> loans = loanService.getLoansByCustomer(customerId);
+
+      assertEquals(1, loans.size());
+      assertEquals(loan.getId(), loans.get(0).getId());
+      assertEquals(1, loanService.getInstallmentsByLoan(loan.getId()).stream()
+                                 .filter(LoanInstallmentDTO::getIsPaid)
+                                 .count());
+      assertEquals(new BigDecimal("1320.00"),
+                   context.getBean(CustomerRepository.class).findById(customerId).orElseThrow().getUsedCreditLimit());
+    }
+  }
+
+  private ConfigurableApplicationContext start() {
+    return new SpringApplicationBuilder(CreditModuleApplication.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.profiles.active=durable",
+             "--credit-module.h2.path=" + dataDir.resolve("credit-module"),
+             "--spring.devtools.restart.enabled=false");
+  }
+}
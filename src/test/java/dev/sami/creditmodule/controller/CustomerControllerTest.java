@@ -1,28 +1,45 @@
 package dev.sami.creditmodule.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.dto.CustomerPageDTO;
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
 import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.service.CustomerPortfolioService;
 import dev.sami.creditmodule.service.CustomerService;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @ExtendWith(MockitoExtension.class)
 class CustomerControllerTest {
@@ -30,7 +47,12 @@ class CustomerControllerTest {
   @Mock
   private CustomerService customerService;
 
-  @InjectMocks
+  @Mock
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
+
   private CustomerController customerController;
 
   private final CustomerDTO sampleCustomerDTO = createSampleCustomerDTO();
@@ -45,6 +67,12 @@ class CustomerControllerTest {
                                    .build();
   }
 
+  @BeforeEach
+  void setUp() {
+    customerController = new CustomerController(customerService, customerPortfolioService, objectMapper,
+                                                Duration.ofMinutes(10));
+  }
+
   @Test
   void createCustomer_ShouldReturnCreatedCustomer() {
     when(customerService.createCustomer(any(CustomerDTO.class)))
@@ -71,16 +99,69 @@ class CustomerControllerTest {
   }
 
   @Test
-  void getAllCustomers_ShouldReturnListOfCustomers() {
-    List<CustomerDTO> customerList = Collections.singletonList(sampleCustomerDTO);
-    when(customerService.getAllCustomers()).thenReturn(customerList);
+  void getCustomerPortfolio_ShouldReturnPortfolio() {
+    CustomerPortfolioDTO portfolio = new CustomerPortfolioDTO(1L, 2, BigDecimal.valueOf(600), LocalDate.now(),
+                                                              BigDecimal.ZERO);
+    when(customerPortfolioService.getPortfolio(1L)).thenReturn(portfolio);
 
-    ResponseEntity<List<CustomerDTO>> response = customerController.getAllCustomers();
+    ResponseEntity<CustomerPortfolioDTO> response = customerController.getCustomerPortfolio(1L);
+
+    assertEquals(200, response.getStatusCode().value());
+    assertEquals(portfolio, response.getBody());
+  }
+
+  @Test
+  void getCustomers_ShouldReturnPageOfCustomers() {
+    CustomerPageDTO page = new CustomerPageDTO(Collections.singletonList(sampleCustomerDTO), 1L);
+    when(customerService.getCustomers(0L, 100)).thenReturn(page);
+
+    ResponseEntity<List<CustomerDTO>> response = customerController.getCustomers(0L, 100);
 
     assertNotNull(response);
     assertEquals(200, response.getStatusCode().value());
-    assertEquals(customerList, response.getBody());
-    verify(customerService).getAllCustomers();
+    assertEquals(List.of(sampleCustomerDTO), response.getBody());
+    assertEquals("1", response.getHeaders().getFirst(CustomerController.NEXT_CURSOR));
+    verify(customerService).getCustomers(0L, 100);
+  }
+
+  @Test
+  void getCustomers_ShouldOmitCursorOnLastPage() {
+    when(customerService.getCustomers(0L, 100))
+        .thenReturn(new CustomerPageDTO(Collections.singletonList(sampleCustomerDTO), null));
+
+    ResponseEntity<List<CustomerDTO>> response = customerController.getCustomers(0L, 100);
+
+    assertEquals(List.of(sampleCustomerDTO), response.getBody());
+    assertFalse(response.getHeaders().containsKey(CustomerController.NEXT_CURSOR));
+  }
+
+  @Test
+  void streamCustomers_ShouldWriteJsonArray() throws Exception {
+    doAnswer(invocation -> {
+      Consumer<CustomerDTO> consumer = invocation.getArgument(0);
+      consumer.accept(sampleCustomerDTO);
+      consumer.accept(sampleCustomerDTO);
+      return null;
+    }).when(customerService).streamAllCustomers(any());
+
+    ResponseEntity<StreamingResponseBody> response =
+        customerController.streamCustomers(new MockHttpServletRequest());
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    response.getBody().writeTo(outputStream);
+
+    JsonNode customers = objectMapper.readTree(outputStream.toByteArray());
+    assertEquals(200, response.getStatusCode().value());
+    assertEquals(2, customers.size());
+    assertEquals(sampleCustomerDTO.getId(), customers.get(0).get("id").asLong());
+  }
+
+  @Test
+  void streamCustomers_ShouldUseItsOwnTimeout() throws Exception {
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(customerController).build();
+
+    MvcResult result = mockMvc.perform(get("/api/customers/stream")).andReturn();
+
+    assertEquals(Duration.ofMinutes(10).toMillis(), result.getRequest().getAsyncContext().getTimeout());
   }
 
   @Test
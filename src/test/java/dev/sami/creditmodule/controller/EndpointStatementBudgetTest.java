@@ -0,0 +1,249 @@
+package dev.sami.creditmodule.controller;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO.Status;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.service.AsyncPaymentService;
+import dev.sami.creditmodule.service.LoanService;
+import dev.sami.creditmodule.support.QueryCounter;
+import dev.sami.creditmodule.support.QueryCountingConfiguration;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Round-trip budget of every customer and loan endpoint, measured per HTTP request with empty caches.
+ * Sequence fetches are not counted: the pooled allocators only run them once per 50 ids. A change that
+ * adds a query to an endpoint has to raise its budget here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountingConfiguration.class)
+class EndpointStatementBudgetTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private QueryCounter queryCounter;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private AsyncPaymentService asyncPaymentService;
+
+  private Long customerId;
+
+  private LoanDTO loan;
+
+  @BeforeEach
+  void setUp() {
+    customerId = saveCustomer();
+    loan = loanService.createLoan(customerId, BigDecimal.valueOf(1200), 0.2, 12);
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(120));
+  }
+
+  @Test
+  void createCustomer() throws Exception {
+    // insert
+    assertWithinBudget(1, post("/api/customers")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"Sami\",\"surname\":\"Sahin\",\"creditLimit\":1000,\"usedCreditLimit\":0}"));
+  }
+
+  @Test
+  void getCustomer() throws Exception {
+    // customer
+    assertWithinBudget(1, get("/api/customers/{id}", customerId));
+  }
+
+  @Test
+  void getCustomerPortfolio() throws Exception {
+    // projection row with its due date subqueries
+    assertWithinBudget(1, get("/api/customers/{id}/portfolio", customerId));
+  }
+
+  @Test
+  void getCustomers() throws Exception {
+    // one keyset page, however many customers it holds
+    assertWithinBudget(1, get("/api/customers").param("size", "50"));
+  }
+
+  @Test
+  void streamCustomers() throws Exception {
+    // one cursor over the whole table
+    assertWithinBudget(1, get("/api/customers/stream"));
+  }
+
+  @Test
+  void updateCustomer() throws Exception {
+    // customer, versioned update
+    assertWithinBudget(2, put("/api/customers/{id}", customerId)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"Sami\",\"surname\":\"Sahin\",\"creditLimit\":200000}"));
+  }
+
+  @Test
+  void deleteCustomer() throws Exception {
+    // customer, delete
+    assertWithinBudget(2, delete("/api/customers/{id}", saveCustomer()));
+  }
+
+  @Test
+  void createLoan() throws Exception {
+    // credit reservation, loan insert, one merge per portfolio table
+    assertWithinBudget(4, post("/api/loans")
+        .param("customerId", customerId.toString())
+        .param("amount", "2400")
+        .param("interestRate", "0.2")
+        .param("numberOfInstallments", "24"));
+  }
+
+  @Test
+  void createLoans() throws Exception {
+    // one customer lookup, one credit reservation per customer, one loan batch, one merge batch per portfolio table
+    String application = "{\"customerId\":" + customerId + ",\"amount\":600,\"interestRate\":0.2,"
+                         + "\"numberOfInstallments\":6}";
+    assertWithinBudget(5, post("/api/loans/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[" + String.join(",", application, application, application, application, application) + "]"));
+  }
+
+  @Test
+  void quoteLoans() throws Exception {
+    // nothing: quotes are computed, never read or written
+    assertWithinBudget(0, post("/api/loans/quote")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"amounts\":[1000,5000],\"interestRates\":[0.1,0.3,0.5],\"numberOfInstallments\":[6,9,12,24]}"));
+  }
+
+  @Test
+  void listLoans() throws Exception {
+    // loans version, loans of the customer
+    assertWithinBudget(2, get("/api/loans").param("customerId", customerId.toString()));
+  }
+
+  @Test
+  void listLoansNotModified() throws Exception {
+    // loans version
+    String eTag = eTagOf(get("/api/loans").param("customerId", customerId.toString()));
+    assertWithinBudget(1, get("/api/loans").param("customerId", customerId.toString())
+        .header(HttpHeaders.IF_NONE_MATCH, eTag));
+  }
+
+  @Test
+  void listInstallments() throws Exception {
+    // loan version, loan, its payments
+    assertWithinBudget(3, get("/api/loans/{loanId}/installments", loan.getId()));
+  }
+
+  @Test
+  void listInstallmentsNotModified() throws Exception {
+    // loan version
+    String eTag = eTagOf(get("/api/loans/{loanId}/installments", loan.getId()));
+    assertWithinBudget(1, get("/api/loans/{loanId}/installments", loan.getId())
+        .header(HttpHeaders.IF_NONE_MATCH, eTag));
+  }
+
+  @Test
+  void payLoan() throws Exception {
+    // loan, versioned counter update, payment insert, credit release, one merge batch per portfolio table
+    assertWithinBudget(6, post("/api/loans/{loanId}/pay", loan.getId()).param("amount", "300"));
+  }
+
+  @Test
+  void replayedPayLoan() throws Exception {
+    // served from the idempotency store's memory tier
+    RequestBuilder payment = post("/api/loans/{loanId}/pay", loan.getId())
+        .header("Idempotency-Key", UUID.randomUUID().toString())
+        .param("amount", "300");
+    mockMvc.perform(payment);
+    assertWithinBudget(0, payment);
+  }
+
+  @Test
+  void payLoanAsync() throws Exception {
+    // nothing on the request thread; the worker settles it like a synchronous payment
+    assertWithinBudget(6, post("/api/loans/{loanId}/pay", loan.getId())
+        .param("amount", "300")
+        .param("async", "true"));
+  }
+
+  private void assertWithinBudget(int roundTrips, RequestBuilder request) throws Exception {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    queryCounter.reset();
+
+    MvcResult result = mockMvc.perform(request).andReturn();
+    if (result.getRequest().isAsyncStarted()) {
+      result = mockMvc.perform(asyncDispatch(result)).andReturn();
+    }
+    String endpoint = result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+    HttpStatus status = HttpStatus.valueOf(result.getResponse().getStatus());
+    assertTrue(status.is2xxSuccessful() || status == HttpStatus.NOT_MODIFIED,
+               endpoint + " answered " + result.getResponse().getStatus());
+    awaitQueuedPayment(result);
+
+    assertTrue(queryCounter.getRoundTripsExcludingSequences() <= roundTrips,
+               endpoint + " took " + queryCounter.getRoundTripsExcludingSequences() + " round trips, budget is "
+               + roundTrips + ": " + queryCounter.getQueries());
+  }
+
+  private String eTagOf(MockHttpServletRequestBuilder request) throws Exception {
+    String eTag = mockMvc.perform(request).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertTrue(eTag != null, "no ETag");
+    return eTag;
+  }
+
+  private void awaitQueuedPayment(MvcResult result) throws InterruptedException {
+    String location = result.getResponse().getHeader("Location");
+    if (location == null) {
+      return;
+    }
+    String paymentId = location.substring(location.lastIndexOf('/') + 1);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (asyncPaymentService.getStatus(paymentId).orElseThrow().getStatus() == Status.PENDING
+           && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private Long saveCustomer() {
+    return customerRepository.save(Customer.builder()
+                                           .name("Sami")
+                                           .surname("Sahin")
+                                           .creditLimit(BigDecimal.valueOf(100_000))
+                                           .usedCreditLimit(BigDecimal.ZERO)
+                                           .build())
+                             .getId();
+  }
+}
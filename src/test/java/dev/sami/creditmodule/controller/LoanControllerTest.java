@@ -1,21 +1,42 @@
 package dev.sami.creditmodule.controller;
 
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
 import dev.sami.creditmodule.dto.LoanDTO;
 import dev.sami.creditmodule.dto.LoanInstallmentDTO;
+import dev.sami.creditmodule.dto.LoanQuoteDTO;
+import dev.sami.creditmodule.dto.LoanQuoteRequestDTO;
 import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.service.AsyncPaymentService;
+import dev.sami.creditmodule.service.IdempotencyService;
+import dev.sami.creditmodule.service.LoanQuoteService;
 import dev.sami.creditmodule.service.LoanService;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +45,15 @@ class LoanControllerTest {
   @Mock
   private LoanService loanService;
 
+  @Mock
+  private AsyncPaymentService asyncPaymentService;
+
+  @Mock
+  private IdempotencyService idempotencyService;
+
+  @Mock
+  private LoanQuoteService loanQuoteService;
+
   @InjectMocks
   private LoanController loanController;
 
@@ -37,39 +67,101 @@ class LoanControllerTest {
     LoanDTO loanDTO = new LoanDTO();
     when(loanService.createLoan(customerId, amount, interestRate, numberOfInstallments))
         .thenReturn(loanDTO);
+    runIdempotently("key-1", LoanDTO.class);
 
     ResponseEntity<LoanDTO> response =
-        loanController.createLoan(customerId, amount, interestRate, numberOfInstallments);
+        loanController.createLoan("key-1", customerId, amount, interestRate, numberOfInstallments);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(loanDTO, response.getBody());
     verify(loanService).createLoan(customerId, amount, interestRate, numberOfInstallments);
   }
 
+  @Test
+  void testCreateLoans() {
+    List<LoanApplicationDTO> applications = List.of(new LoanApplicationDTO(1L, BigDecimal.valueOf(1000), 0.2, 12));
+    List<LoanBatchResultDTO> results = List.of(new LoanBatchResultDTO(0, new LoanDTO(), null));
+    when(loanService.createLoans(applications)).thenReturn(results);
+
+    ResponseEntity<List<LoanBatchResultDTO>> response = loanController.createLoans(applications);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(results, response.getBody());
+    verify(loanService).createLoans(applications);
+  }
+
+  @Test
+  void testQuoteLoans() {
+    LoanQuoteRequestDTO request = new LoanQuoteRequestDTO(List.of(BigDecimal.valueOf(1000)), List.of(0.2), List.of(12));
+    List<LoanQuoteDTO> quotes = List.of(new LoanQuoteDTO());
+    when(loanQuoteService.quote(request)).thenReturn(quotes);
+
+    ResponseEntity<List<LoanQuoteDTO>> response = loanController.quoteLoans(request);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(quotes, response.getBody());
+    verifyNoInteractions(loanService);
+  }
+
   @Test
   void testListLoans() {
     Long customerId = 1L;
     List<LoanDTO> loans = List.of(new LoanDTO());
+    when(loanService.getLoansVersion(customerId)).thenReturn(3L);
     when(loanService.getLoansByCustomer(customerId)).thenReturn(loans);
 
-    ResponseEntity<List<LoanDTO>> response = loanController.listLoans(customerId);
+    ResponseEntity<List<LoanDTO>> response = loanController.listLoans(customerId, webRequest(null));
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"3\"", response.getHeaders().getETag());
     assertEquals(loans, response.getBody());
     verify(loanService).getLoansByCustomer(customerId);
   }
 
+  @Test
+  void testListLoansNotModified() {
+    when(loanService.getLoansVersion(1L)).thenReturn(3L);
+
+    ResponseEntity<List<LoanDTO>> response = loanController.listLoans(1L, webRequest("\"3\""));
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    verify(loanService, never()).getLoansByCustomer(any());
+  }
+
   @Test
   void testListInstallments() {
     Long loanId = 1L;
     List<LoanInstallmentDTO> installments = List.of(new LoanInstallmentDTO());
-    when(loanService.getInstallmentsByLoan(loanId)).thenReturn(installments);
+    when(loanService.getLoanVersion(loanId)).thenReturn(Optional.of(2L));
+    when(loanService.getInstallmentsByLoan(loanId, 2L)).thenReturn(installments);
 
-    ResponseEntity<List<LoanInstallmentDTO>> response = loanController.listInstallments(loanId);
+    ResponseEntity<List<LoanInstallmentDTO>> response = loanController.listInstallments(loanId, webRequest("\"1\""));
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"2\"", response.getHeaders().getETag());
     assertEquals(installments, response.getBody());
-    verify(loanService).getInstallmentsByLoan(loanId);
+    verify(loanService).getInstallmentsByLoan(loanId, 2L);
+  }
+
+  @Test
+  void testListInstallmentsNotModified() {
+    when(loanService.getLoanVersion(1L)).thenReturn(Optional.of(2L));
+
+    ResponseEntity<List<LoanInstallmentDTO>> response = loanController.listInstallments(1L, webRequest("\"2\""));
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    verify(loanService, never()).getInstallmentsByLoan(any(), anyLong());
+  }
+
+  @Test
+  void testListInstallmentsOfUnknownLoan() {
+    when(loanService.getLoanVersion(1L)).thenReturn(Optional.empty());
+
+    ResponseEntity<List<LoanInstallmentDTO>> response = loanController.listInstallments(1L, webRequest("*"));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(), response.getBody());
+    assertNull(response.getHeaders().getETag());
   }
 
   @Test
@@ -78,11 +170,82 @@ class LoanControllerTest {
     BigDecimal amount = BigDecimal.valueOf(500);
     PaymentResultDTO paymentResultDTO = new PaymentResultDTO(2, BigDecimal.valueOf(500), false);
     when(loanService.payLoan(loanId, amount)).thenReturn(paymentResultDTO);
+    runIdempotently(null, PaymentResultDTO.class);
 
-    ResponseEntity<PaymentResultDTO> response = loanController.payLoan(loanId, amount);
+    ResponseEntity<PaymentResultDTO> response = loanController.payLoan(null, loanId, amount);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(paymentResultDTO, response.getBody());
     verify(loanService).payLoan(loanId, amount);
   }
+
+  @Test
+  void testPayLoan_ReplayedByIdempotencyKey() {
+    PaymentResultDTO paymentResultDTO = new PaymentResultDTO(2, BigDecimal.valueOf(500), false);
+    when(idempotencyService.execute(eq("key-1"), eq("payLoan loanId=1 amount=500"), eq(PaymentResultDTO.class), any()))
+        .thenReturn(ResponseEntity.ok(paymentResultDTO));
+
+    ResponseEntity<PaymentResultDTO> response = loanController.payLoan("key-1", 1L, BigDecimal.valueOf(500));
+
+    assertEquals(paymentResultDTO, response.getBody());
+    verify(loanService, never()).payLoan(any(), any());
+  }
+
+  @Test
+  void testPayLoan_ReplayedByIdempotencyKeyWhenAmountDiffersOnlyInScale() {
+    PaymentResultDTO paymentResultDTO = new PaymentResultDTO(2, BigDecimal.valueOf(500), false);
+    when(idempotencyService.execute(eq("key-1"), eq("payLoan loanId=1 amount=500"), eq(PaymentResultDTO.class), any()))
+        .thenReturn(ResponseEntity.ok(paymentResultDTO));
+
+    ResponseEntity<PaymentResultDTO> response = loanController.payLoan("key-1", 1L, new BigDecimal("500.00"));
+
+    assertEquals(paymentResultDTO, response.getBody());
+    verify(loanService, never()).payLoan(any(), any());
+  }
+
+  @Test
+  void testPayLoanAsync() {
+    PaymentStatusDTO status = new PaymentStatusDTO("payment-1", 1L, BigDecimal.valueOf(100),
+                                                   PaymentStatusDTO.Status.PENDING, null, null);
+    when(asyncPaymentService.submit(1L, BigDecimal.valueOf(100))).thenReturn(status);
+    runIdempotently(null, PaymentStatusDTO.class);
+
+    ResponseEntity<PaymentStatusDTO> response = loanController.payLoanAsync(null, 1L, BigDecimal.valueOf(100));
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals("/api/payments/payment-1", response.getHeaders().getLocation().toString());
+    assertEquals(status, response.getBody());
+  }
+
+  @Test
+  void testPayLoanAsync_ReplayedByIdempotencyKey() {
+    PaymentStatusDTO status = new PaymentStatusDTO("payment-1", 1L, BigDecimal.valueOf(100),
+                                                   PaymentStatusDTO.Status.PENDING, null, null);
+    when(idempotencyService.execute(eq("key-1"), eq("payLoanAsync loanId=1 amount=100"), eq(PaymentStatusDTO.class),
+                                    any()))
+        .thenReturn(ResponseEntity.status(HttpStatus.ACCEPTED)
+                                  .header(IdempotencyService.REPLAYED_HEADER, "true")
+                                  .body(status));
+
+    ResponseEntity<PaymentStatusDTO> response = loanController.payLoanAsync("key-1", 1L, BigDecimal.valueOf(100));
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals("/api/payments/payment-1", response.getHeaders().getLocation().toString());
+    assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    verifyNoInteractions(asyncPaymentService);
+  }
+
+  private static WebRequest webRequest(String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+    if (ifNoneMatch != null) {
+      request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return new ServletWebRequest(request, new MockHttpServletResponse());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void runIdempotently(String key, Class<T> responseType) {
+    when(idempotencyService.execute(eq(key), any(), eq(responseType), any()))
+        .thenAnswer(invocation -> ((Supplier<ResponseEntity<T>>) invocation.getArgument(3)).get());
+  }
 }
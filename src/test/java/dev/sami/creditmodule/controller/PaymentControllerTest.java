@@ -0,0 +1,58 @@
+package dev.sami.creditmodule.controller;
+
+import dev.sami.creditmodule.dto.PaymentImportReportDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.service.AsyncPaymentService;
+import dev.sami.creditmodule.service.PaymentImportService;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentControllerTest {
+
+  @Mock
+  private PaymentImportService paymentImportService;
+
+  @Mock
+  private AsyncPaymentService asyncPaymentService;
+
+  @InjectMocks
+  private PaymentController paymentController;
+
+  @Test
+  void testImportCsv() {
+    InputStream body = new ByteArrayInputStream("1,100\n".getBytes());
+    PaymentImportReportDTO report =
+        new PaymentImportReportDTO(1, 1, 0, 1, BigDecimal.valueOf(100), 0, 5, List.of());
+    when(paymentImportService.importCsv(body)).thenReturn(report);
+
+    ResponseEntity<PaymentImportReportDTO> response = paymentController.importCsv(body);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(report, response.getBody());
+  }
+
+  @Test
+  void testGetPaymentStatus() {
+    PaymentStatusDTO status = new PaymentStatusDTO("payment-1", 1L, BigDecimal.valueOf(100),
+                                                   PaymentStatusDTO.Status.COMPLETED, null, null);
+    when(asyncPaymentService.getStatus("payment-1")).thenReturn(Optional.of(status));
+    when(asyncPaymentService.getStatus("unknown")).thenReturn(Optional.empty());
+
+    assertEquals(status, paymentController.getPaymentStatus("payment-1").getBody());
+    assertEquals(HttpStatus.NOT_FOUND, paymentController.getPaymentStatus("unknown").getStatusCode());
+  }
+}
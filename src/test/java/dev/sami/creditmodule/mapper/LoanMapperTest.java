@@ -0,0 +1,51 @@
+package dev.sami.creditmodule.mapper;
+
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Loan;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoanMapperTest {
+
+  private final LoanMapper loanMapper = Mappers.getMapper(LoanMapper.class);
+
+  private Loan createSampleLoan() {
+    return Loan.builder()
+               .id(1L)
+               .customerId(2L)
+               .loanAmount(BigDecimal.valueOf(1200.0))
+               .numberOfInstallments(6)
+               .isPaid(false)
+               .createDate(LocalDate.of(2024, 3, 5))
+               .build();
+  }
+
+  @Test
+  void toDto_ShouldCopyFieldsAndFormatCreateDate() {
+    LoanDTO result = loanMapper.toDto(createSampleLoan());
+
+    assertEquals(1L, result.getId());
+    assertEquals(2L, result.getCustomerId());
+    assertEquals(BigDecimal.valueOf(1200.0), result.getLoanAmount());
+    assertEquals(6, result.getNumberOfInstallments());
+    assertEquals(false, result.getIsPaid());
+    assertEquals("2024-03-05", result.getCreateDate());
+  }
+
+  @Test
+  void toDtos_ShouldMapEveryLoan() {
+    Loan loanWithoutDate = createSampleLoan();
+    loanWithoutDate.setCreateDate(null);
+
+    List<LoanDTO> result = loanMapper.toDtos(List.of(createSampleLoan(), loanWithoutDate));
+
+    assertEquals(2, result.size());
+    assertNull(result.get(1).getCreateDate());
+  }
+}
@@ -0,0 +1,96 @@
+package dev.sami.creditmodule.repository;
+
+import dev.sami.creditmodule.support.QueryCounter;
+import dev.sami.creditmodule.support.QueryCountingConfiguration;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs each repository lookup, then asks H2 to EXPLAIN the exact SQL Hibernate generated for it, so a
+ * changed query or a dropped index shows up as a table scan or an extra sort.
+ */
+@SpringBootTest
+@Import(QueryCountingConfiguration.class)
+class RepositoryQueryPlanTest {
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  @Autowired
+  private LoanPaymentRepository loanPaymentRepository;
+
+  @Autowired
+  private CustomerPortfolioRepository customerPortfolioRepository;
+
+  @Autowired
+  private QueryCounter queryCounter;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    queryCounter.reset();
+  }
+
+  @Test
+  void findByCustomerId_ShouldUseCustomerIndex() {
+    loanRepository.findByCustomerId(1L);
+
+    assertUsesIndex(explainLastQuery(1L), "IDX_LOAN_CUSTOMER_ID");
+  }
+
+  @Test
+  void findByLoanIdOrderByFirstInstallment_ShouldUseIndexWithoutSort() {
+    loanPaymentRepository.findByLoanIdOrderByFirstInstallment(1L);
+
+    String plan = explainLastQuery(1L);
+    assertUsesIndex(plan, "IDX_LOAN_PAYMENT_LOAN_FIRST");
+    assertSortedByIndex(plan);
+  }
+
+  @Test
+  void payInstallments_ShouldUsePrimaryKey() {
+    loanRepository.payInstallments(1L, 0L, 1);
+
+    assertUsesIndex(explainLastQuery(1, 1, 1L, 0L), "PRIMARY_KEY_");
+  }
+
+  @Test
+  void findByIdIn_ShouldUsePrimaryKey() {
+    loanRepository.findByIdIn(List.of(1L, 2L));
+
+    assertUsesIndex(explainLastQuery(1L, 2L), "PRIMARY_KEY_");
+  }
+
+  @Test
+  void findPortfolio_ShouldOnlyUsePrimaryKeys() {
+    LocalDate today = LocalDate.now();
+    customerPortfolioRepository.findPortfolio(1L, today);
+
+    assertUsesIndex(explainLastQuery(today, today, 1L), "PRIMARY_KEY_");
+  }
+
+  private String explainLastQuery(Object... parameters) {
+    List<String> queries = queryCounter.getQueries();
+    return jdbcTemplate.queryForObject("explain " + queries.get(queries.size() - 1), String.class, parameters);
+  }
+
+  private void assertUsesIndex(String plan, String indexName) {
+    assertTrue(plan.contains("/* PUBLIC." + indexName), plan);
+    assertFalse(plan.contains("tableScan"), plan);
+  }
+
+  private void assertSortedByIndex(String plan) {
+    assertTrue(plan.contains("/* index sorted */"), plan);
+  }
+}
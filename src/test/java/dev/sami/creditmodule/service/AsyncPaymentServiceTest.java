@@ -0,0 +1,121 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO;
+import dev.sami.creditmodule.dto.PaymentStatusDTO.Status;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncPaymentServiceTest {
+
+  @Mock
+  private LoanService loanService;
+
+  private AsyncPaymentService asyncPaymentService;
+
+  @BeforeEach
+  void setUp() {
+    // one shard, so every payment below lands on the same worker
+    asyncPaymentService = new AsyncPaymentService(loanService, Executors.defaultThreadFactory(), 1, 4, 100,
+                                                  "maximumSize=100");
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    asyncPaymentService.stop();
+  }
+
+  @Test
+  void testPaymentsOfOneLoanInOneBatchGetTheirOwnResults() throws Exception {
+    PaymentResultDTO firstResult = new PaymentResultDTO(1, BigDecimal.valueOf(100), false);
+    PaymentResultDTO secondResult = new PaymentResultDTO(1, BigDecimal.valueOf(120), false);
+    PaymentResultDTO thirdResult = new PaymentResultDTO(0, BigDecimal.ZERO, false);
+    when(loanService.payLoans(List.of(new PaymentRequestDTO(1L, BigDecimal.valueOf(100)),
+                                      new PaymentRequestDTO(2L, BigDecimal.valueOf(120)),
+                                      new PaymentRequestDTO(1L, BigDecimal.valueOf(50)))))
+        .thenReturn(List.of(firstResult, secondResult, thirdResult));
+
+    // queued before the worker starts, so they are all drained in one batch
+    CompletableFuture<PaymentResultDTO> first = asyncPaymentService.pay(1L, BigDecimal.valueOf(100));
+    CompletableFuture<PaymentResultDTO> second = asyncPaymentService.pay(2L, BigDecimal.valueOf(120));
+    PaymentStatusDTO third = asyncPaymentService.submit(1L, BigDecimal.valueOf(50));
+    assertEquals(Status.PENDING, third.getStatus());
+    asyncPaymentService.start();
+
+    assertEquals(firstResult, first.get(5, TimeUnit.SECONDS));
+    assertEquals(secondResult, second.get(5, TimeUnit.SECONDS));
+    PaymentStatusDTO status = awaitCompletion(third.getId());
+    assertEquals(Status.COMPLETED, status.getStatus());
+    assertEquals(thirdResult, status.getResult());
+  }
+
+  @Test
+  void testFailedBatchIsReplayedPerPayment() throws Exception {
+    PaymentResultDTO result = new PaymentResultDTO(1, BigDecimal.valueOf(120), false);
+    PaymentResultDTO nothingPaid = new PaymentResultDTO(0, BigDecimal.ZERO, false);
+    when(loanService.payLoans(anyList())).thenThrow(new RuntimeException("Loan not found"));
+    when(loanService.payLoan(1L, BigDecimal.valueOf(120))).thenReturn(result);
+    when(loanService.payLoan(1L, BigDecimal.valueOf(50))).thenReturn(nothingPaid);
+    when(loanService.payLoan(2L, BigDecimal.valueOf(120))).thenThrow(new RuntimeException("Loan not found"));
+
+    CompletableFuture<PaymentResultDTO> valid = asyncPaymentService.pay(1L, BigDecimal.valueOf(120));
+    PaymentStatusDTO invalid = asyncPaymentService.submit(2L, BigDecimal.valueOf(120));
+    CompletableFuture<PaymentResultDTO> sameLoan = asyncPaymentService.pay(1L, BigDecimal.valueOf(50));
+    asyncPaymentService.start();
+
+    assertEquals(result, valid.get(5, TimeUnit.SECONDS));
+    assertEquals(nothingPaid, sameLoan.get(5, TimeUnit.SECONDS));
+    PaymentStatusDTO status = awaitCompletion(invalid.getId());
+    assertEquals(Status.FAILED, status.getStatus());
+    assertEquals("Loan not found", status.getError());
+  }
+
+  @Test
+  void testFullShardRejectsPayments() {
+    for (int i = 0; i < 4; i++) {
+      asyncPaymentService.submit(1L, BigDecimal.TEN);
+    }
+
+    assertThrows(RejectedExecutionException.class, () -> asyncPaymentService.submit(1L, BigDecimal.TEN));
+  }
+
+  @Test
+  void testUnappliedPaymentsFailOnShutdown() throws InterruptedException {
+    CompletableFuture<PaymentResultDTO> payment = asyncPaymentService.pay(1L, BigDecimal.TEN);
+
+    asyncPaymentService.stop();
+
+    ExecutionException error = assertThrows(ExecutionException.class, payment::get);
+    assertTrue(error.getCause().getMessage().contains("shutdown"));
+  }
+
+  private PaymentStatusDTO awaitCompletion(String paymentId) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      PaymentStatusDTO status = asyncPaymentService.getStatus(paymentId).orElseThrow();
+      if (status.getStatus() != Status.PENDING) {
+        return status;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("Payment " + paymentId + " is still pending");
+  }
+}
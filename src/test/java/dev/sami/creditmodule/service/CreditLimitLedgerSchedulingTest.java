@@ -0,0 +1,86 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"credit-module.ledger.enabled=true", "credit-module.ledger.flush-interval-ms=20"})
+@DirtiesContext
+class CreditLimitLedgerSchedulingTest {
+
+  @Autowired
+  private TaskScheduler taskScheduler;
+
+  @Autowired
+  private DelinquencyAgingService delinquencyAgingService;
+
+  @Autowired
+  private CustomerService customerService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void flush_ShouldKeepRunningDuringAgingRun() throws Exception {
+    Long customerId = customerRepository.save(Customer.builder()
+                                                      .name("Ledger")
+                                                      .surname("Customer")
+                                                      .creditLimit(BigDecimal.valueOf(1_000))
+                                                      .usedCreditLimit(BigDecimal.ZERO)
+                                                      .build())
+                                        .getId();
+    CountDownLatch agingStarted = new CountDownLatch(1);
+    CountDownLatch agingReleased = new CountDownLatch(1);
+    // an aging run on a scheduler thread, held open for as long as the test needs
+    taskScheduler.schedule(() -> {
+      delinquencyAgingService.ageToday();
+      agingStarted.countDown();
+      awaitQuietly(agingReleased);
+    }, Instant.now());
+
+    try {
+      assertTrue(agingStarted.await(10, TimeUnit.SECONDS));
+      customerService.reserveCredit(customerId, BigDecimal.valueOf(100));
+
+      assertTrue(awaitUsedCreditLimit(customerId, new BigDecimal("100.00")),
+                 "ledger was not flushed while the aging run held a scheduler thread");
+    } finally {
+      agingReleased.countDown();
+    }
+  }
+
+  private boolean awaitUsedCreditLimit(Long customerId, BigDecimal expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      BigDecimal used = jdbcTemplate.queryForObject("select used_credit_limit from customer where id = ?",
+                                                    BigDecimal.class, customerId);
+      if (expected.compareTo(used) == 0) {
+        return true;
+      }
+      Thread.sleep(10);
+    }
+    return false;
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CreditLimitLedgerTest {
+
+  @Mock
+  private CustomerRepository customerRepository;
+
+  private Customer createSampleCustomer() {
+    return Customer.builder()
+                   .id(1L)
+                   .name("Sami")
+                   .surname("Sahin")
+                   .creditLimit(BigDecimal.valueOf(10000))
+                   .usedCreditLimit(BigDecimal.valueOf(2000))
+                   .build();
+  }
+
+  private CreditLimitLedger createLedger(Customer customer) {
+    when(customerRepository.findAll()).thenReturn(List.of(customer));
+    CreditLimitLedger ledger = new CreditLimitLedger(customerRepository, new NoOpCacheManager(),
+                                                     TransactionOperations.withoutTransaction(), true, 16);
+    ledger.rebuild();
+    return ledger;
+  }
+
+  @Test
+  void testAdjustWithinLimit() {
+    CreditLimitLedger ledger = createLedger(createSampleCustomer());
+
+    assertTrue(ledger.adjust(1L, BigDecimal.valueOf(8000)));
+    assertFalse(ledger.adjust(1L, BigDecimal.ONE));
+    assertTrue(ledger.adjust(1L, BigDecimal.valueOf(-10000)));
+    assertFalse(ledger.adjust(1L, BigDecimal.valueOf(-1)));
+  }
+
+  @Test
+  void testAdjustLoadsUnknownCustomer() {
+    CreditLimitLedger ledger = new CreditLimitLedger(customerRepository, new NoOpCacheManager(),
+                                                     TransactionOperations.withoutTransaction(), true, 16);
+    when(customerRepository.findById(1L)).thenReturn(Optional.of(createSampleCustomer()));
+    when(customerRepository.findById(2L)).thenReturn(Optional.empty());
+
+    assertTrue(ledger.adjust(1L, BigDecimal.valueOf(1000)));
+    assertThrows(RuntimeException.class, () -> ledger.adjust(2L, BigDecimal.ONE));
+  }
+
+  @Test
+  void testConcurrentReservationsNeverExceedLimit() throws Exception {
+    CreditLimitLedger ledger = createLedger(createSampleCustomer());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      futures.add(executor.submit(() -> {
+        int reserved = 0;
+        for (int i = 0; i < 2000; i++) {
+          if (ledger.adjust(1L, BigDecimal.ONE)) {
+            reserved++;
+          }
+        }
+        return reserved;
+      }));
+    }
+    int reserved = 0;
+    for (Future<Integer> future : futures) {
+      reserved += future.get();
+    }
+    executor.shutdown();
+
+    assertEquals(8000, reserved);
+  }
+
+  @Test
+  void testFlushWritesChangedBalances() {
+    Customer customer = createSampleCustomer();
+    CreditLimitLedger ledger = createLedger(customer);
+    Customer persistedCustomer = createSampleCustomer();
+    when(customerRepository.findAllById(anyIterable())).thenReturn(List.of(persistedCustomer));
+
+    ledger.adjust(1L, BigDecimal.valueOf(500));
+    ledger.flush();
+    ledger.flush();
+
+    assertEquals(BigDecimal.valueOf(2500), persistedCustomer.getUsedCreditLimit());
+    verify(customerRepository).saveAll(List.of(persistedCustomer));
+  }
+
+  @Test
+  void testRebuildKeepsAccountsAdjustedBeforeIt() {
+    CreditLimitLedger ledger = new CreditLimitLedger(customerRepository, new NoOpCacheManager(),
+                                                     TransactionOperations.withoutTransaction(), true, 16);
+    when(customerRepository.findById(1L)).thenReturn(Optional.of(createSampleCustomer()));
+    when(customerRepository.findAll()).thenReturn(List.of(createSampleCustomer()));
+
+    assertTrue(ledger.adjust(1L, BigDecimal.valueOf(500)));
+    ledger.rebuild();
+
+    assertTrue(ledger.adjust(1L, BigDecimal.valueOf(7500)));
+    assertFalse(ledger.adjust(1L, BigDecimal.ONE));
+  }
+
+  @Test
+  void testShutdownFlushesInTransaction() {
+    AtomicInteger transactions = new AtomicInteger();
+    when(customerRepository.findAll()).thenReturn(List.of(createSampleCustomer()));
+    TransactionOperations transactionOperations = new TransactionOperations() {
+      @Override
+      public <T> T execute(TransactionCallback<T> action) {
+        transactions.incrementAndGet();
+        return action.doInTransaction(new SimpleTransactionStatus());
+      }
+    };
+    CreditLimitLedger ledger =
+        new CreditLimitLedger(customerRepository, new NoOpCacheManager(), transactionOperations, true, 16);
+    ledger.rebuild();
+    Customer persistedCustomer = createSampleCustomer();
+    when(customerRepository.findAllById(anyIterable())).thenReturn(List.of(persistedCustomer));
+
+    ledger.adjust(1L, BigDecimal.valueOf(500));
+    ledger.shutdown();
+
+    assertEquals(1, transactions.get());
+    assertEquals(BigDecimal.valueOf(2500), persistedCustomer.getUsedCreditLimit());
+  }
+
+  @Test
+  void testFlushDisabled() {
+    CreditLimitLedger ledger = new CreditLimitLedger(customerRepository, new NoOpCacheManager(),
+                                                     TransactionOperations.withoutTransaction(), false, 16);
+
+    ledger.rebuild();
+    ledger.flush();
+
+    verify(customerRepository, never()).findAll();
+    verify(customerRepository, never()).saveAll(any());
+  }
+}
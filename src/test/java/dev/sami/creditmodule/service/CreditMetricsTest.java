@@ -0,0 +1,155 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionOperations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class CreditMetricsTest {
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerService customerService;
+
+  @Autowired
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private TransactionOperations transactionOperations;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    customerId = customerRepository.save(Customer.builder()
+                                                 .name("Sami")
+                                                 .surname("Sahin")
+                                                 .creditLimit(BigDecimal.valueOf(1_000))
+                                                 .usedCreditLimit(BigDecimal.ZERO)
+                                                 .build())
+                                   .getId();
+  }
+
+  @Test
+  void createLoan_ShouldBeTimedByInstallmentsAndOutcome() {
+    long created = count("credit.loan.create", "installments", "6", "outcome", "success");
+    long overLimit = count("credit.loan.create", "installments", "12", "outcome", "rejected_limit");
+    long invalidRate = count("credit.loan.create", "installments", "6", "outcome", "invalid_rate");
+    long invalidInstallments = count("credit.loan.create", "installments", "other", "outcome", "invalid_installments");
+
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    assertThrows(IllegalArgumentException.class,
+                 () -> loanService.createLoan(customerId, BigDecimal.valueOf(5_000), 0.2, 12));
+    assertThrows(IllegalArgumentException.class,
+                 () -> loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.9, 6));
+    assertThrows(IllegalArgumentException.class,
+                 () -> loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 7));
+
+    assertEquals(created + 1, count("credit.loan.create", "installments", "6", "outcome", "success"));
+    assertEquals(overLimit + 1, count("credit.loan.create", "installments", "12", "outcome", "rejected_limit"));
+    assertEquals(invalidRate + 1, count("credit.loan.create", "installments", "6", "outcome", "invalid_rate"));
+    assertEquals(invalidInstallments + 1,
+                 count("credit.loan.create", "installments", "other", "outcome", "invalid_installments"));
+  }
+
+  @Test
+  void createLoan_ShouldCountCreationThatDidNotCommitAsError() {
+    long created = count("credit.loan.create", "installments", "6", "outcome", "success");
+    long failed = count("credit.loan.create", "installments", "6", "outcome", "error");
+
+    transactionOperations.executeWithoutResult(status -> {
+      loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+      assertEquals(created, count("credit.loan.create", "installments", "6", "outcome", "success"));
+      status.setRollbackOnly();
+    });
+
+    assertEquals(created, count("credit.loan.create", "installments", "6", "outcome", "success"));
+    assertEquals(failed + 1, count("credit.loan.create", "installments", "6", "outcome", "error"));
+  }
+
+  @Test
+  void createLoans_ShouldBeTimedByOutcome() {
+    long created = count("credit.loan.create.batch", "outcome", "success");
+
+    loanService.createLoans(List.of(new LoanApplicationDTO(customerId, BigDecimal.valueOf(600), 0.2, 6)));
+
+    assertEquals(created + 1, count("credit.loan.create.batch", "outcome", "success"));
+  }
+
+  @Test
+  void payLoan_ShouldRecordInstallmentsAndAmountPerPayment() {
+    Loan loan = createLoan();
+    long payments = meterRegistry.get("credit.payment.installments").summary().count();
+    double amount = meterRegistry.get("credit.payment.amount").summary().totalAmount();
+    long paidTwo = count("credit.installments.pay", "installments", "2", "outcome", "success");
+    long released = count("credit.limit.adjust", "operation", "release", "outcome", "success");
+
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(250));
+
+    assertEquals(payments + 1, meterRegistry.get("credit.payment.installments").summary().count());
+    assertEquals(amount + 240, meterRegistry.get("credit.payment.amount").summary().totalAmount());
+    assertEquals(paidTwo + 1, count("credit.installments.pay", "installments", "2", "outcome", "success"));
+    assertEquals(released + 1, count("credit.limit.adjust", "operation", "release", "outcome", "success"));
+  }
+
+  @Test
+  void payLoan_ShouldNotRecordPaymentThatDidNotCommit() {
+    Loan loan = createLoan();
+    long payments = meterRegistry.get("credit.payment.installments").summary().count();
+    double amount = meterRegistry.get("credit.payment.amount").summary().totalAmount();
+
+    transactionOperations.executeWithoutResult(status -> {
+      loanService.payLoan(loan.getId(), BigDecimal.valueOf(250));
+      assertEquals(payments, meterRegistry.get("credit.payment.installments").summary().count());
+      status.setRollbackOnly();
+    });
+
+    assertEquals(payments, meterRegistry.get("credit.payment.installments").summary().count());
+    assertEquals(amount, meterRegistry.get("credit.payment.amount").summary().totalAmount());
+  }
+
+  private Loan createLoan() {
+    customerService.reserveCredit(customerId, new BigDecimal("720.00"));
+    Loan loan = loanRepository.save(Loan.builder()
+                                        .customerId(customerId)
+                                        .loanAmount(new BigDecimal("720.00"))
+                                        .numberOfInstallments(6)
+                                        .installmentAmount(new BigDecimal("120.00"))
+                                        .paidInstallments(0)
+                                        .createDate(LocalDate.now().minusMonths(4))
+                                        .isPaid(false)
+                                        .build());
+    customerPortfolioService.loansCreated(List.of(loan));
+    return loan;
+  }
+
+  private long count(String timer, String... tags) {
+    return meterRegistry.find(timer).tags(tags).timers().stream().mapToLong(Timer::count).sum();
+  }
+}
@@ -0,0 +1,80 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * With the credit limit ledger enabled no customer row is locked by a reservation, so nothing but the
+ * portfolio write itself serializes concurrent changes of one customer's portfolio.
+ */
+@SpringBootTest(properties = "credit-module.ledger.enabled=true")
+class CustomerPortfolioLedgerTest {
+
+  private static final int THREADS = 8;
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Test
+  void createLoan_ShouldCreatePortfolioRowsOnceUnderConcurrentFirstLoans() throws Exception {
+    for (int round = 0; round < 5; round++) {
+      Long customerId = customerRepository.save(Customer.builder()
+                                                        .name("Ledger")
+                                                        .surname("Customer")
+                                                        .creditLimit(BigDecimal.valueOf(1_000_000))
+                                                        .usedCreditLimit(BigDecimal.ZERO)
+                                                        .build())
+                                          .getId();
+
+      List<LoanDTO> loans = concurrently(() -> loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6));
+
+      CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(customerId);
+      assertEquals(THREADS, loans.size());
+      assertEquals(THREADS, portfolio.getOpenLoans());
+      assertEquals(0, BigDecimal.valueOf(THREADS * 720L).compareTo(portfolio.getOutstandingAmount()));
+    }
+  }
+
+  private <T> List<T> concurrently(Callable<T> task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<T>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return task.call();
+        }));
+      }
+      start.countDown();
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.CustomerPortfolioDTO;
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class CustomerPortfolioServiceTest {
+
+  @Autowired
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerService customerService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    customerId = customerRepository.save(Customer.builder()
+                                                 .name("Sami")
+                                                 .surname("Sahin")
+                                                 .creditLimit(BigDecimal.valueOf(100_000))
+                                                 .usedCreditLimit(BigDecimal.ZERO)
+                                                 .build())
+                                   .getId();
+  }
+
+  @Test
+  void getPortfolio_ShouldBeEmptyForCustomerWithoutLoans() {
+    CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(customerId);
+
+    assertEquals(0, portfolio.getOpenLoans());
+    assertAmount("0", portfolio.getOutstandingAmount());
+    assertNull(portfolio.getNextDueDate());
+  }
+
+  @Test
+  void getPortfolio_ShouldFailForUnknownCustomer() {
+    assertThrows(RuntimeException.class, () -> customerPortfolioService.getPortfolio(-1L));
+  }
+
+  @Test
+  void getLoansVersion_ShouldMoveWithEveryLoanCreationAndPayment() {
+    assertEquals(0, customerPortfolioService.getLoansVersion(customerId));
+
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.createLoans(List.of(new LoanApplicationDTO(customerId, BigDecimal.valueOf(1200), 0.2, 12)));
+    assertEquals(2, customerPortfolioService.getLoansVersion(customerId));
+
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(120));
+    assertEquals(3, customerPortfolioService.getLoansVersion(customerId));
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(50));
+    assertEquals(3, customerPortfolioService.getLoansVersion(customerId));
+  }
+
+  @Test
+  void createLoans_ShouldAddLoansAndInstallments() {
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.createLoans(List.of(new LoanApplicationDTO(customerId, BigDecimal.valueOf(1200), 0.2, 12),
+                                    new LoanApplicationDTO(customerId, BigDecimal.valueOf(900), 0.2, 9)));
+
+    CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(customerId);
+
+    assertEquals(3, portfolio.getOpenLoans());
+    assertAmount("3240", portfolio.getOutstandingAmount());
+    assertEquals(LocalDate.now().plusMonths(1).withDayOfMonth(1), portfolio.getNextDueDate());
+    assertAmount("0", portfolio.getOverdueAmount());
+  }
+
+  @Test
+  void createLoans_ShouldRejectUnknownCustomerAndCreateTheOthers() {
+    List<LoanBatchResultDTO> results =
+        loanService.createLoans(List.of(new LoanApplicationDTO(-1L, BigDecimal.valueOf(1200), 0.2, 12),
+                                        new LoanApplicationDTO(customerId, BigDecimal.valueOf(900), 0.2, 9)));
+
+    assertEquals("Customer not found", results.get(0).getError());
+    assertNotNull(results.get(1).getLoan());
+    assertEquals(1, customerPortfolioService.getPortfolio(customerId).getOpenLoans());
+  }
+
+  @Test
+  void payLoans_ShouldRemovePaidInstallments() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    LoanDTO otherLoan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(240));
+    loanService.payLoans(List.of(new PaymentRequestDTO(otherLoan.getId(), BigDecimal.valueOf(360)),
+                                 new PaymentRequestDTO(loan.getId(), BigDecimal.valueOf(120))));
+
+    CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(customerId);
+    assertEquals(2, portfolio.getOpenLoans());
+    assertAmount("720", portfolio.getOutstandingAmount());
+    assertEquals(LocalDate.now().plusMonths(4).withDayOfMonth(1), portfolio.getNextDueDate());
+  }
+
+  @Test
+  void getPortfolio_ShouldTrackOverdueInstallmentsUntilLoanIsClosed() {
+    customerService.reserveCredit(customerId, new BigDecimal("720.00"));
+    Loan loan = loanRepository.save(Loan.builder()
+                                        .customerId(customerId)
+                                        .loanAmount(new BigDecimal("720.00"))
+                                        .numberOfInstallments(6)
+                                        .installmentAmount(new BigDecimal("120.00"))
+                                        .paidInstallments(0)
+                                        .createDate(LocalDate.now().minusMonths(4))
+                                        .isPaid(false)
+                                        .build());
+    customerPortfolioService.loansCreated(List.of(loan));
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(120));
+
+    CustomerPortfolioDTO portfolio = customerPortfolioService.getPortfolio(customerId);
+    LocalDate today = LocalDate.now();
+    long overdueInstallments = IntStream.rangeClosed(2, 6)
+                                        .mapToObj(number -> LoanInstallmentService.getDueDate(loan, number))
+                                        .filter(dueDate -> dueDate.isBefore(today))
+                                        .count();
+    assertEquals(1, portfolio.getOpenLoans());
+    assertAmount("600", portfolio.getOutstandingAmount());
+    assertAmount(String.valueOf(120 * overdueInstallments), portfolio.getOverdueAmount());
+    assertEquals(LoanInstallmentService.getDueDate(loan, 2 + (int) overdueInstallments), portfolio.getNextDueDate());
+
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(600));
+
+    portfolio = customerPortfolioService.getPortfolio(customerId);
+    assertEquals(0, portfolio.getOpenLoans());
+    assertAmount("0", portfolio.getOutstandingAmount());
+    assertAmount("0", portfolio.getOverdueAmount());
+    assertNull(portfolio.getNextDueDate());
+  }
+
+  private void assertAmount(String expected, BigDecimal actual) {
+    assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+  }
+}
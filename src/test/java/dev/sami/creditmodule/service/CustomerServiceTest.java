@@ -1,22 +1,29 @@
 package dev.sami.creditmodule.service;
 
 import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.dto.CustomerPageDTO;
 import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.mapper.CustomerMapper;
 import dev.sami.creditmodule.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,7 +34,17 @@ class CustomerServiceTest {
     private CustomerRepository customerRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private CustomerMapper customerMapper;
+
+    @Mock
+    private CreditLimitLedger creditLimitLedger;
+
+    @Spy
+    private OptimisticRetry optimisticRetry =
+            new OptimisticRetry(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 1, 0, 0);
+
+    @Spy
+    private CreditMetrics creditMetrics = new CreditMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private CustomerService customerService;
@@ -57,9 +74,9 @@ class CustomerServiceTest {
         CustomerDTO inputDTO = createSampleCustomerDTO();
         Customer customer = createSampleCustomer();
         
-        when(modelMapper.map(inputDTO, Customer.class)).thenReturn(customer);
+        when(customerMapper.toEntity(inputDTO)).thenReturn(customer);
         when(customerRepository.save(customer)).thenReturn(customer);
-        when(modelMapper.map(customer, CustomerDTO.class)).thenReturn(inputDTO);
+        when(customerMapper.toDto(customer)).thenReturn(inputDTO);
 
         CustomerDTO result = customerService.createCustomer(inputDTO);
 
@@ -73,7 +90,7 @@ class CustomerServiceTest {
         CustomerDTO customerDTO = createSampleCustomerDTO();
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(modelMapper.map(customer, CustomerDTO.class)).thenReturn(customerDTO);
+        when(customerMapper.toDto(customer)).thenReturn(customerDTO);
 
         CustomerDTO result = customerService.getCustomerById(1L);
 
@@ -82,18 +99,53 @@ class CustomerServiceTest {
     }
 
     @Test
-    void testGetAllCustomers() {
+    void testGetCustomers() {
         List<Customer> customers = List.of(createSampleCustomer());
         CustomerDTO customerDTO = createSampleCustomerDTO();
 
-        when(customerRepository.findAll()).thenReturn(customers);
-        when(modelMapper.map(any(Customer.class), eq(CustomerDTO.class))).thenReturn(customerDTO);
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1))).thenReturn(customers);
+        when(customerMapper.toDtos(customers)).thenReturn(List.of(customerDTO));
+
+        CustomerPageDTO result = customerService.getCustomers(0L, 1);
+
+        assertEquals(List.of(customerDTO), result.getCustomers());
+        assertEquals(1L, result.getNextAfterId());
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1));
+    }
+
+    @Test
+    void testGetCustomersLastPage() {
+        List<Customer> customers = List.of(createSampleCustomer());
+
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10))).thenReturn(customers);
+        when(customerMapper.toDtos(customers)).thenReturn(List.of(createSampleCustomerDTO()));
+
+        CustomerPageDTO result = customerService.getCustomers(0L, 10);
+
+        assertEquals(1, result.getCustomers().size());
+        assertNull(result.getNextAfterId());
+    }
+
+    @Test
+    void testGetCustomersClampsPageSize() {
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1000))).thenReturn(List.of());
+        when(customerMapper.toDtos(List.of())).thenReturn(List.of());
+
+        customerService.getCustomers(0L, 1_000_000);
+
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1000));
+    }
+
+    @Test
+    void testStreamAllCustomers() {
+        CustomerDTO customerDTO = createSampleCustomerDTO();
+        List<CustomerDTO> streamed = new ArrayList<>();
+
+        when(customerRepository.streamAllOrderById()).thenReturn(Stream.of(customerDTO));
 
-        List<CustomerDTO> result = customerService.getAllCustomers();
+        customerService.streamAllCustomers(streamed::add);
 
-        assertEquals(1, result.size());
-        assertEquals(customerDTO, result.get(0));
-        verify(customerRepository).findAll();
+        assertEquals(List.of(customerDTO), streamed);
     }
 
     @Test
@@ -104,7 +156,7 @@ class CustomerServiceTest {
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(existingCustomer));
         when(customerRepository.save(any(Customer.class))).thenReturn(existingCustomer);
-        when(modelMapper.map(existingCustomer, CustomerDTO.class)).thenReturn(updateDTO);
+        when(customerMapper.toDto(existingCustomer)).thenReturn(updateDTO);
 
         CustomerDTO result = customerService.updateCustomer(1L, updateDTO);
 
@@ -114,72 +166,78 @@ class CustomerServiceTest {
     }
 
     @Test
-    void testValidateCreditLimit() {
-        Customer customer = createSampleCustomer();
+    void testReserveCredit() {
         BigDecimal loanAmount = BigDecimal.valueOf(5000);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.adjustUsedCreditLimit(1L, loanAmount)).thenReturn(1);
 
-        boolean result = customerService.validateCreditLimit(1L, loanAmount);
+        boolean result = customerService.reserveCredit(1L, loanAmount);
 
         assertTrue(result);
-        verify(customerRepository).findById(1L);
+        verify(customerRepository).adjustUsedCreditLimit(1L, loanAmount);
+        verify(customerRepository, never()).findById(any());
     }
 
     @Test
-    void testValidateCreditLimitExceedsAvailable() {
-        Customer customer = createSampleCustomer();
+    void testReserveCreditExceedsAvailable() {
         BigDecimal loanAmount = BigDecimal.valueOf(9000);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.adjustUsedCreditLimit(1L, loanAmount)).thenReturn(0);
+        when(customerRepository.existsById(1L)).thenReturn(true);
 
-        boolean result = customerService.validateCreditLimit(1L, loanAmount);
+        boolean result = customerService.reserveCredit(1L, loanAmount);
 
         assertFalse(result);
-        verify(customerRepository).findById(1L);
+        verify(customerRepository).adjustUsedCreditLimit(1L, loanAmount);
     }
 
     @Test
-    void testUpdateUsedCreditLimit() {
-        Customer customer = createSampleCustomer();
-        BigDecimal amount = BigDecimal.valueOf(3000);
+    void testReserveCreditCustomerNotFound() {
+        BigDecimal loanAmount = BigDecimal.valueOf(5000);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(customerRepository.save(customer)).thenReturn(customer);
+        when(customerRepository.adjustUsedCreditLimit(1L, loanAmount)).thenReturn(0);
+        when(customerRepository.existsById(1L)).thenReturn(false);
 
-        customerService.updateUsedCreditLimit(1L, amount);
+        assertThrows(RuntimeException.class, () -> customerService.reserveCredit(1L, loanAmount));
+    }
 
-        assertEquals(BigDecimal.valueOf(5000), customer.getUsedCreditLimit());
-        verify(customerRepository).findById(1L);
-        verify(customerRepository).save(customer);
+    @Test
+    void testReserveCreditWithLedger() {
+        BigDecimal loanAmount = BigDecimal.valueOf(5000);
+
+        when(creditLimitLedger.isEnabled()).thenReturn(true);
+        when(creditLimitLedger.adjust(1L, loanAmount)).thenReturn(true);
+
+        boolean result = customerService.reserveCredit(1L, loanAmount);
+
+        assertTrue(result);
+        verify(creditLimitLedger).adjust(1L, loanAmount);
+        verify(customerRepository, never()).adjustUsedCreditLimit(any(), any());
     }
 
     @Test
-    void testUpdateUsedCreditLimitNegativeAmount() {
-        Customer customer = createSampleCustomer();
-        BigDecimal amount = BigDecimal.valueOf(-1000);
+    void testReleaseCredit() {
+        BigDecimal amount = BigDecimal.valueOf(1000);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(customerRepository.save(customer)).thenReturn(customer);
+        when(customerRepository.adjustUsedCreditLimit(1L, amount.negate())).thenReturn(1);
 
-        customerService.updateUsedCreditLimit(1L, amount);
+        customerService.releaseCredit(1L, amount);
 
-        assertEquals(BigDecimal.valueOf(1000), customer.getUsedCreditLimit());
-        verify(customerRepository).findById(1L);
-        verify(customerRepository).save(customer);
+        verify(customerRepository).adjustUsedCreditLimit(1L, amount.negate());
+        verify(customerRepository, never()).save(any(Customer.class));
     }
 
     @Test
-    void testUpdateUsedCreditLimitExceedsTotalLimit() {
-        Customer customer = createSampleCustomer();
-        BigDecimal amount = BigDecimal.valueOf(9000);
+    void testReleaseCreditBelowZero() {
+        BigDecimal amount = BigDecimal.valueOf(3000);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.adjustUsedCreditLimit(1L, amount.negate())).thenReturn(0);
+        when(customerRepository.existsById(1L)).thenReturn(true);
 
-        assertThrows(IllegalArgumentException.class, () -> 
-            customerService.updateUsedCreditLimit(1L, amount)
+        assertThrows(IllegalArgumentException.class, () ->
+            customerService.releaseCredit(1L, amount)
         );
 
-        verify(customerRepository).findById(1L);
+        verify(customerRepository).adjustUsedCreditLimit(1L, amount.negate());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.entity.CustomerDelinquency;
+import dev.sami.creditmodule.entity.DelinquencyRun;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.entity.LoanDelinquency;
+import dev.sami.creditmodule.repository.CustomerDelinquencyRepository;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.repository.DelinquencyRunRepository;
+import dev.sami.creditmodule.repository.LoanDelinquencyRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class DelinquencyAgingServiceTest {
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private DelinquencyRunRepository delinquencyRunRepository;
+
+  @Autowired
+  private LoanDelinquencyRepository loanDelinquencyRepository;
+
+  @Autowired
+  private CustomerDelinquencyRepository customerDelinquencyRepository;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  private DelinquencyAgingService delinquencyAgingService;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    // small chunks, so a run spans several chunks and waves
+    delinquencyAgingService = new DelinquencyAgingService(jdbcTemplate, delinquencyRunRepository, 2, 3);
+    customerId = customerRepository.save(Customer.builder()
+                                                 .name("Sami")
+                                                 .surname("Sahin")
+                                                 .creditLimit(BigDecimal.valueOf(100_000))
+                                                 .usedCreditLimit(BigDecimal.ZERO)
+                                                 .build())
+                                   .getId();
+  }
+
+  @Test
+  void age_ShouldBucketOverdueInstallmentsPerLoanAndCustomer() {
+    LocalDate asOfDate = LocalDate.of(2030, 6, 15);
+    // unpaid installments due on Mar 1, Apr 1, May 1, Jun 1 and Jul 1
+    Loan behind = saveLoan(LocalDate.of(2030, 1, 10), "100.00", 1, false);
+    // first installment due on Jun 1
+    Loan late = saveLoan(LocalDate.of(2030, 5, 20), "50.00", 0, false);
+    Loan current = saveLoan(LocalDate.of(2030, 6, 10), "50.00", 0, false);
+    Loan paid = saveLoan(LocalDate.of(2029, 6, 10), "50.00", 6, true);
+
+    assertTrue(delinquencyAgingService.age(asOfDate));
+
+    assertBuckets(loanDelinquencyRepository.findById(behind.getId()).orElseThrow(), "100", "100", "100", "100");
+    assertBuckets(loanDelinquencyRepository.findById(late.getId()).orElseThrow(), "50", "0", "0", "0");
+    assertFalse(loanDelinquencyRepository.existsById(current.getId()));
+    assertFalse(loanDelinquencyRepository.existsById(paid.getId()));
+    CustomerDelinquency customer = customerDelinquencyRepository.findById(customerId).orElseThrow();
+    assertEquals(asOfDate, customer.getAsOfDate());
+    assertAmount("150", customer.getOverdue1To30());
+    assertAmount("100", customer.getOverdue31To60());
+    assertAmount("100", customer.getOverdue61To90());
+    assertAmount("100", customer.getOverdueOver90());
+  }
+
+  @Test
+  void age_ShouldResumeAfterCheckpointAndNotRunTwice() {
+    LocalDate asOfDate = LocalDate.of(2031, 6, 15);
+    Loan checkpointed = saveLoan(LocalDate.of(2031, 1, 10), "100.00", 0, false);
+    Loan remaining = saveLoan(LocalDate.of(2031, 1, 10), "100.00", 0, false);
+    delinquencyRunRepository.save(new DelinquencyRun(asOfDate, checkpointed.getId(), null));
+
+    assertTrue(delinquencyAgingService.age(asOfDate));
+    assertFalse(delinquencyAgingService.age(asOfDate));
+
+    assertFalse(loanDelinquencyRepository.existsById(checkpointed.getId()));
+    assertTrue(loanDelinquencyRepository.existsById(remaining.getId()));
+    assertTrue(delinquencyRunRepository.findById(asOfDate).orElseThrow().getCompletedAt() != null);
+  }
+
+  @Test
+  void age_ShouldRemoveLoansAndCustomersNoLongerOverdue() {
+    LocalDate asOfDate = LocalDate.of(2032, 6, 15);
+    Loan loan = saveLoan(LocalDate.of(2032, 1, 10), "100.00", 0, false);
+    delinquencyAgingService.age(asOfDate);
+    assertTrue(customerDelinquencyRepository.existsById(customerId));
+
+    loan.setPaidInstallments(6);
+    loan.setIsPaid(true);
+    loanRepository.save(loan);
+    delinquencyAgingService.age(asOfDate.plusDays(1));
+
+    assertFalse(loanDelinquencyRepository.existsById(loan.getId()));
+    assertFalse(customerDelinquencyRepository.existsById(customerId));
+  }
+
+  private Loan saveLoan(LocalDate createDate, String installmentAmount, int paidInstallments, boolean isPaid) {
+    BigDecimal amount = new BigDecimal(installmentAmount);
+    return loanRepository.save(Loan.builder()
+                                   .customerId(customerId)
+                                   .loanAmount(amount.multiply(BigDecimal.valueOf(6)))
+                                   .numberOfInstallments(6)
+                                   .installmentAmount(amount)
+                                   .paidInstallments(paidInstallments)
+                                   .createDate(createDate)
+                                   .isPaid(isPaid)
+                                   .build());
+  }
+
+  private void assertBuckets(LoanDelinquency loan, String upTo30, String upTo60, String upTo90, String over90) {
+    assertAmount(upTo30, loan.getOverdue1To30());
+    assertAmount(upTo60, loan.getOverdue31To60());
+    assertAmount(upTo90, loan.getOverdue61To90());
+    assertAmount(over90, loan.getOverdueOver90());
+  }
+
+  private void assertAmount(String expected, BigDecimal actual) {
+    assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,183 @@
+package dev.sami.creditmodule.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.exception.IdempotencyKeyException;
+import dev.sami.creditmodule.repository.IdempotencyRecordRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class IdempotencyServiceTest {
+
+  private static final PaymentResultDTO RESULT = new PaymentResultDTO(2, new BigDecimal("240.00"), false);
+
+  @Autowired
+  private IdempotencyService idempotencyService;
+
+  @Autowired
+  private IdempotencyRecordRepository idempotencyRecordRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private OptimisticRetry optimisticRetry;
+
+  private final AtomicInteger runs = new AtomicInteger();
+
+  @Test
+  void execute_ShouldReplayResponseWithoutRunningTheRequestAgain() {
+    String key = UUID.randomUUID().toString();
+
+    ResponseEntity<PaymentResultDTO> first = idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+    ResponseEntity<PaymentResultDTO> retry = idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+
+    assertEquals(1, runs.get());
+    assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    assertEquals(HttpStatus.OK, retry.getStatusCode());
+    assertEquals(RESULT, retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+  }
+
+  @Test
+  void execute_ShouldReplayFromTheTableWhenNotHeldInMemory() {
+    String key = UUID.randomUUID().toString();
+    idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+    IdempotencyService otherInstance =
+        new IdempotencyService(idempotencyRecordRepository, jdbcTemplate, objectMapper, optimisticRetry, 60, 60,
+                               "maximumSize=10");
+
+    ResponseEntity<PaymentResultDTO> retry = otherInstance.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+
+    assertEquals(1, runs.get());
+    assertEquals(RESULT, retry.getBody());
+  }
+
+  @Test
+  void execute_ShouldRejectKeyReusedForAnotherRequest() {
+    String key = UUID.randomUUID().toString();
+    idempotencyService.execute(key, "payLoan loanId=1", PaymentResultDTO.class, this::pay);
+
+    IdempotencyKeyException exception = assertThrows(
+        IdempotencyKeyException.class,
+        () -> idempotencyService.execute(key, "payLoan loanId=2", PaymentResultDTO.class, this::pay));
+
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatus());
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void execute_ShouldRejectRetryWhileFirstRequestIsRunning() {
+    String key = UUID.randomUUID().toString();
+
+    idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, () -> {
+      IdempotencyKeyException exception = assertThrows(
+          IdempotencyKeyException.class,
+          () -> idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay));
+      assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+      return pay();
+    });
+
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void execute_ShouldReleaseKeyOfFailedRequest() {
+    String key = UUID.randomUUID().toString();
+
+    assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute(
+        key, "payLoan", PaymentResultDTO.class, () -> {
+          throw new IllegalArgumentException("Loan not found");
+        }));
+    idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void execute_ShouldTakeOverClaimWhoseLeaseExpired() {
+    String key = UUID.randomUUID().toString();
+    // left behind by a process that died while running the first request
+    claim(key, LocalDateTime.now().minusSeconds(1));
+
+    ResponseEntity<PaymentResultDTO> retry = idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+
+    assertEquals(RESULT, retry.getBody());
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void execute_ShouldRejectRetryWhileClaimIsLeased() {
+    String key = UUID.randomUUID().toString();
+    claim(key, LocalDateTime.now().plusMinutes(1));
+
+    IdempotencyKeyException exception = assertThrows(
+        IdempotencyKeyException.class,
+        () -> idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay));
+
+    assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    assertEquals(0, runs.get());
+  }
+
+  @Test
+  void execute_ShouldRollBackRequestWhoseClaimWasTakenOver() {
+    String key = UUID.randomUUID().toString();
+    String write = UUID.randomUUID().toString();
+
+    IdempotencyKeyException exception = assertThrows(
+        IdempotencyKeyException.class,
+        () -> idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, () -> {
+          claim(write, LocalDateTime.now().plusMinutes(1));
+          // a retry took the claim over after its lease expired
+          jdbcTemplate.update("update idempotency_record set claim_token = 'retry' where idempotency_key = ?", key);
+          return pay();
+        }));
+
+    assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    assertFalse(idempotencyRecordRepository.existsById(write));
+  }
+
+  @Test
+  void purgeExpired_ShouldForgetExpiredKeys() {
+    String key = UUID.randomUUID().toString();
+    IdempotencyService otherInstance =
+        new IdempotencyService(idempotencyRecordRepository, jdbcTemplate, objectMapper, optimisticRetry, 60, 60,
+                               "maximumSize=10");
+    otherInstance.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+    jdbcTemplate.update("update idempotency_record set expires_at = ? where idempotency_key = ?",
+                        LocalDateTime.now().minusMinutes(1), key);
+
+    idempotencyService.purgeExpired();
+
+    assertFalse(idempotencyRecordRepository.existsById(key));
+    idempotencyService.execute(key, "payLoan", PaymentResultDTO.class, this::pay);
+    assertEquals(2, runs.get());
+  }
+
+  private void claim(String key, LocalDateTime leaseExpiresAt) {
+    jdbcTemplate.update("insert into idempotency_record (idempotency_key, fingerprint, claim_token, expires_at) "
+                        + "values (?, 'payLoan', 'other', ?)", key, leaseExpiresAt);
+  }
+
+  private ResponseEntity<PaymentResultDTO> pay() {
+    runs.incrementAndGet();
+    return ResponseEntity.ok(RESULT);
+  }
+}
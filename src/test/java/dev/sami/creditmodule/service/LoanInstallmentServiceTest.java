@@ -1,145 +1,176 @@
 package dev.sami.creditmodule.service;
 
+import dev.sami.creditmodule.dto.LoanInstallmentDTO;
 import dev.sami.creditmodule.dto.PaidInstallmentsDTO;
-import dev.sami.creditmodule.entity.LoanInstallment;
-import dev.sami.creditmodule.repository.LoanInstallmentRepository;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.entity.LoanPayment;
+import dev.sami.creditmodule.repository.LoanPaymentRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class LoanInstallmentServiceTest {
 
+    private static final LocalDate CREATE_DATE = LocalDate.of(2024, 1, 15);
+
+    private static final LocalDate PAYABLE_BEFORE = CREATE_DATE.plusMonths(3);
+
+    @Mock
+    private LoanRepository loanRepository;
+
     @Mock
-    private LoanInstallmentRepository installmentRepository;
+    private LoanPaymentRepository loanPaymentRepository;
+
+    @Spy
+    private CreditMetrics creditMetrics = new CreditMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private LoanInstallmentService loanInstallmentService;
 
-    private LoanInstallment createSampleInstallment(Long loanId, BigDecimal amount, int monthOffset) {
-        return LoanInstallment.builder()
+    private Loan createSampleLoan(int paidInstallments) {
+        return Loan.builder()
                 .id(1L)
-                .loanId(loanId)
-                .amount(amount)
-                .paidAmount(BigDecimal.ZERO)
+                .customerId(1L)
+                .loanAmount(new BigDecimal("600.00"))
+                .numberOfInstallments(6)
+                .installmentAmount(new BigDecimal("100.00"))
+                .paidInstallments(paidInstallments)
+                .createDate(CREATE_DATE)
                 .isPaid(false)
-                .dueDate(LocalDate.now().plusMonths(monthOffset))
+                .version(0L)
                 .build();
     }
 
     @Test
-    void testCreateInstallment() {
-        LoanInstallment installment = createSampleInstallment(1L, BigDecimal.valueOf(100), 1);
-        
-        when(installmentRepository.save(installment)).thenReturn(installment);
-
-        loanInstallmentService.createInstallment(installment);
-
-        verify(installmentRepository).save(installment);
-    }
-
-    @Test
-    void testGetInstallmentsByLoan() {
-        Long loanId = 1L;
-        List<LoanInstallment> installments = Arrays.asList(
-            createSampleInstallment(loanId, BigDecimal.valueOf(100), 1),
-            createSampleInstallment(loanId, BigDecimal.valueOf(100), 2)
-        );
-
-        when(installmentRepository.findByLoanIdOrderByDueDate(loanId)).thenReturn(installments);
-
-        List<LoanInstallment> result = loanInstallmentService.getInstallmentsByLoan(loanId);
-
-        assertEquals(2, result.size());
-        verify(installmentRepository).findByLoanIdOrderByDueDate(loanId);
+    void testGetInstallmentsOfUnpaidLoan() {
+        Loan loan = createSampleLoan(0);
+
+        List<LoanInstallmentDTO> installments = loanInstallmentService.getInstallments(loan);
+
+        assertEquals(6, installments.size());
+        LoanInstallmentDTO first = installments.get(0);
+        assertEquals(1L, first.getId());
+        assertEquals(loan.getId(), first.getLoanId());
+        assertEquals(new BigDecimal("100.00"), first.getAmount());
+        assertEquals(new BigDecimal("0.00"), first.getPaidAmount());
+        assertEquals(LocalDate.of(2024, 2, 1), first.getDueDate());
+        assertFalse(first.getIsPaid());
+        assertNull(first.getPaymentDate());
+        assertEquals(LocalDate.of(2024, 7, 1), installments.get(5).getDueDate());
+        verifyNoInteractions(loanPaymentRepository);
     }
 
     @Test
-    void testGetPendingInstallments() {
-        Long loanId = 1L;
-        List<LoanInstallment> pendingInstallments = Arrays.asList(
-            createSampleInstallment(loanId, BigDecimal.valueOf(100), 1),
-            createSampleInstallment(loanId, BigDecimal.valueOf(100), 2)
-        );
-
-        when(installmentRepository.findByLoanIdAndIsPaidFalseOrderByDueDate(loanId))
-            .thenReturn(pendingInstallments);
-
-        List<LoanInstallment> result = loanInstallmentService.getPendingInstallments(loanId);
-
-        assertEquals(2, result.size());
-        verify(installmentRepository).findByLoanIdAndIsPaidFalseOrderByDueDate(loanId);
+    void testGetInstallmentsTakesPaymentDatesFromPayments() {
+        Loan loan = createSampleLoan(3);
+        LocalDate firstPaymentDate = LocalDate.now().minusDays(30);
+        when(loanPaymentRepository.findByLoanIdOrderByFirstInstallment(loan.getId())).thenReturn(List.of(
+            new LoanPayment(1L, loan.getId(), 1, 1, new BigDecimal("100.00"), firstPaymentDate),
+            new LoanPayment(2L, loan.getId(), 2, 2, new BigDecimal("200.00"), LocalDate.now())));
+
+        List<LoanInstallmentDTO> installments = loanInstallmentService.getInstallments(loan);
+
+        assertEquals(firstPaymentDate, installments.get(0).getPaymentDate());
+        assertEquals(LocalDate.now(), installments.get(1).getPaymentDate());
+        assertEquals(LocalDate.now(), installments.get(2).getPaymentDate());
+        assertTrue(installments.get(2).getIsPaid());
+        assertEquals(new BigDecimal("100.00"), installments.get(2).getPaidAmount());
+        assertFalse(installments.get(3).getIsPaid());
+        assertNull(installments.get(3).getPaymentDate());
     }
 
     @Test
     void testPayInstallmentsFullPayment() {
-        List<LoanInstallment> pendingInstallments = Arrays.asList(
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 1),
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 2)
-        );
+        Loan loan = createSampleLoan(0);
         BigDecimal paymentAmount = BigDecimal.valueOf(200);
 
-        when(installmentRepository.save(pendingInstallments.get(0))).thenReturn(pendingInstallments.get(0));
-        when(installmentRepository.save(pendingInstallments.get(1))).thenReturn(pendingInstallments.get(1));
+        when(loanRepository.payInstallments(loan.getId(), 0L, 2)).thenReturn(1);
 
-        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(pendingInstallments, paymentAmount);
+        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(loan, paymentAmount, PAYABLE_BEFORE);
 
         assertEquals(2, result.getInstallmentsPaid());
-        assertEquals(paymentAmount, result.getAmountSpent());
-        verify(installmentRepository).save(pendingInstallments.get(0));
-        verify(installmentRepository).save(pendingInstallments.get(1));
+        assertEquals(new BigDecimal("200.00"), result.getAmountSpent());
+        verify(loanRepository).payInstallments(loan.getId(), 0L, 2);
+        verify(loanPaymentRepository).save(argThat(payment -> payment.getFirstInstallment() == 1
+                                                              && payment.getInstallmentsPaid() == 2));
     }
 
     @Test
     void testPayInstallmentsPartialPayment() {
-        List<LoanInstallment> pendingInstallments = Arrays.asList(
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 1),
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 2)
-        );
+        Loan loan = createSampleLoan(1);
         BigDecimal paymentAmount = BigDecimal.valueOf(150);
 
-        when(installmentRepository.save(pendingInstallments.get(0))).thenReturn(pendingInstallments.get(0));
+        when(loanRepository.payInstallments(loan.getId(), 0L, 1)).thenReturn(1);
 
-        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(pendingInstallments, paymentAmount);
+        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(loan, paymentAmount, PAYABLE_BEFORE);
 
         assertEquals(1, result.getInstallmentsPaid());
-        assertEquals(BigDecimal.valueOf(100), result.getAmountSpent());
-        verify(installmentRepository).save(pendingInstallments.get(0));
+        assertEquals(new BigDecimal("100.00"), result.getAmountSpent());
+        verify(loanPaymentRepository).save(argThat(payment -> payment.getFirstInstallment() == 2));
+    }
+
+    @Test
+    void testPayInstallmentsOnlyPaysInstallmentsDueBeforeLimit() {
+        Loan loan = createSampleLoan(0);
+
+        when(loanRepository.payInstallments(loan.getId(), 0L, 3)).thenReturn(1);
+
+        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(loan, BigDecimal.valueOf(600), PAYABLE_BEFORE);
+
+        assertEquals(3, result.getInstallmentsPaid());
+        assertEquals(new BigDecimal("300.00"), result.getAmountSpent());
     }
 
     @Test
     void testPayInstallmentsInsufficientAmount() {
-        List<LoanInstallment> pendingInstallments = Arrays.asList(
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 1),
-            createSampleInstallment(1L, BigDecimal.valueOf(100), 2)
-        );
-        BigDecimal paymentAmount = BigDecimal.valueOf(50);
+        Loan loan = createSampleLoan(0);
 
-        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(pendingInstallments, paymentAmount);
+        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(loan, BigDecimal.valueOf(50), PAYABLE_BEFORE);
 
         assertEquals(0, result.getInstallmentsPaid());
         assertEquals(BigDecimal.ZERO, result.getAmountSpent());
+        verifyNoInteractions(loanRepository, loanPaymentRepository);
     }
 
     @Test
-    void testPayInstallmentsEmptyList() {
-        List<LoanInstallment> pendingInstallments = List.of();
-        BigDecimal paymentAmount = BigDecimal.valueOf(100);
+    void testPayInstallmentsFullyPaidLoan() {
+        Loan loan = createSampleLoan(6);
 
-        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(pendingInstallments, paymentAmount);
+        PaidInstallmentsDTO result = loanInstallmentService.payInstallments(loan, BigDecimal.valueOf(100), PAYABLE_BEFORE);
 
         assertEquals(0, result.getInstallmentsPaid());
-        assertEquals(BigDecimal.ZERO, result.getAmountSpent());
+        verifyNoInteractions(loanRepository, loanPaymentRepository);
+    }
+
+    @Test
+    void testPayInstallmentsConcurrentlyChanged() {
+        Loan loan = createSampleLoan(0);
+
+        when(loanRepository.payInstallments(loan.getId(), 0L, 2)).thenReturn(0);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                     () -> loanInstallmentService.payInstallments(loan, BigDecimal.valueOf(200), PAYABLE_BEFORE));
+        verifyNoInteractions(loanPaymentRepository);
     }
-} 
\ No newline at end of file
+}
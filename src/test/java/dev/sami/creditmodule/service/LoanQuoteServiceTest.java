@@ -0,0 +1,62 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.LoanQuoteDTO;
+import dev.sami.creditmodule.dto.LoanQuoteRequestDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoanQuoteServiceTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final LoanQuoteService loanQuoteService = new LoanQuoteService(meterRegistry, "maximumSize=100,recordStats");
+
+  @Test
+  void quote_ShouldQuoteEveryCombinationLikeCreateLoan() {
+    List<LoanQuoteDTO> quotes = loanQuoteService.quote(new LoanQuoteRequestDTO(
+        List.of(new BigDecimal("1000"), new BigDecimal("2400")), List.of(0.1, 0.2), List.of(6, 24)));
+
+    assertEquals(8, quotes.size());
+    LoanQuoteDTO quote = quotes.get(1);
+    assertEquals(new BigDecimal("1000"), quote.getAmount());
+    assertEquals(0.1, quote.getInterestRate());
+    assertEquals(24, quote.getNumberOfInstallments());
+    assertEquals(new BigDecimal("1100.00"), quote.getLoanAmount());
+    assertEquals(new BigDecimal("45.83"), quote.getInstallmentAmount());
+    assertEquals(new BigDecimal("1099.92"), quote.getTotalRepayment());
+    assertNull(quote.getError());
+    assertEquals(new BigDecimal("2880.00"), quotes.get(6).getLoanAmount());
+    assertEquals(new BigDecimal("480.00"), quotes.get(6).getInstallmentAmount());
+  }
+
+  @Test
+  void quote_ShouldReportRejectedCombinations() {
+    List<LoanQuoteDTO> quotes = loanQuoteService.quote(new LoanQuoteRequestDTO(
+        List.of(new BigDecimal("1000")), List.of(0.2, 0.9), List.of(6, 7)));
+
+    assertNull(quotes.get(0).getError());
+    assertEquals("Number of installments must be 6, 9, 12, or 24", quotes.get(1).getError());
+    assertNull(quotes.get(1).getLoanAmount());
+    assertEquals("Interest rate must be between 0.1 and 0.5", quotes.get(2).getError());
+  }
+
+  @Test
+  void quote_ShouldServeRepeatedTermsFromTheCache() {
+    LoanQuoteRequestDTO request = new LoanQuoteRequestDTO(List.of(new BigDecimal("1000")), List.of(0.2), List.of(12));
+
+    LoanQuoteDTO first = loanQuoteService.quote(request).get(0);
+    LoanQuoteDTO second = loanQuoteService.quote(new LoanQuoteRequestDTO(
+        List.of(new BigDecimal("1000.00")), List.of(0.2), List.of(12))).get(0);
+
+    assertEquals(first.getInstallmentAmount(), second.getInstallmentAmount());
+    assertEquals(new BigDecimal("1000.00"), second.getAmount());
+    assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", LoanQuoteService.CACHE_NAME)
+                                   .tag("result", "hit").functionCounter().count());
+  }
+}
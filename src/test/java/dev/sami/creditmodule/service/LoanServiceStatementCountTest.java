@@ -0,0 +1,118 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.support.QueryCounter;
+import dev.sami.creditmodule.support.QueryCountingConfiguration;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Import(QueryCountingConfiguration.class)
+class LoanServiceStatementCountTest {
+
+  private static final int CREATE_LOAN_ROUND_TRIP_BUDGET = 4;
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private QueryCounter queryCounter;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    Customer customer = customerRepository.save(Customer.builder()
+                                                        .name("Sami")
+                                                        .surname("Sahin")
+                                                        .creditLimit(BigDecimal.valueOf(1_000_000))
+                                                        .usedCreditLimit(BigDecimal.ZERO)
+                                                        .build());
+    customerId = customer.getId();
+  }
+
+  @Test
+  void createLoan_ShouldOnlyReserveCreditInsertLoanAndUpdatePortfolio() {
+    queryCounter.reset();
+    loanService.createLoan(customerId, BigDecimal.valueOf(2400), 0.2, 24);
+
+    assertTrue(queryCounter.getRoundTripsExcludingSequences() <= CREATE_LOAN_ROUND_TRIP_BUDGET,
+               "createLoan took " + queryCounter.getRoundTrips() + " round trips: " + queryCounter.getQueries());
+    assertEquals(1, queryCounter.getQueries().stream().filter(query -> query.startsWith("insert")).count());
+  }
+
+  @Test
+  void createLoan_ShouldNotReadCustomer() {
+    queryCounter.reset();
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+
+    assertTrue(queryCounter.getQueries().stream().noneMatch(query -> query.startsWith("select")
+                                                                     && query.contains("from customer")),
+               "createLoan read the customer row: " + queryCounter.getQueries());
+  }
+
+  @Test
+  void createLoans_ShouldReserveOnceAndBatchInserts() {
+    List<LoanApplicationDTO> applications = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      applications.add(new LoanApplicationDTO(customerId, BigDecimal.valueOf(600), 0.2, 6));
+    }
+
+    queryCounter.reset();
+    loanService.createLoans(applications);
+
+    // one customer lookup, one credit reservation, one loan batch and one batch per portfolio table
+    assertTrue(queryCounter.getRoundTripsExcludingSequences() <= 5,
+               "createLoans took " + queryCounter.getRoundTrips() + " round trips: " + queryCounter.getQueries());
+  }
+
+  @Test
+  void createLoan_RoundTripsShouldNotDependOnInstallmentCount() {
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+
+    queryCounter.reset();
+    loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    int sixInstallmentRoundTrips = queryCounter.getRoundTripsExcludingSequences();
+
+    queryCounter.reset();
+    loanService.createLoan(customerId, BigDecimal.valueOf(2400), 0.2, 24);
+    int twentyFourInstallmentRoundTrips = queryCounter.getRoundTripsExcludingSequences();
+
+    assertEquals(sixInstallmentRoundTrips, twentyFourInstallmentRoundTrips);
+  }
+
+  @Test
+  void payLoan_StatementsShouldNotGrowWithInstallmentsPaid() {
+    LoanDTO firstLoan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    LoanDTO secondLoan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+
+    queryCounter.reset();
+    loanService.payLoan(firstLoan.getId(), BigDecimal.valueOf(120));
+    int oneInstallmentRoundTrips = queryCounter.getRoundTripsExcludingSequences();
+
+    queryCounter.reset();
+    PaymentResultDTO result = loanService.payLoan(secondLoan.getId(), BigDecimal.valueOf(360));
+    int threeInstallmentRoundTrips = queryCounter.getRoundTripsExcludingSequences();
+
+    // loan, one loan counter update, one payment insert, one credit release and one batch per portfolio table
+    assertEquals(3, result.getInstallmentsPaid());
+    assertEquals(6, threeInstallmentRoundTrips, "payLoan took: " + queryCounter.getQueries());
+    assertEquals(oneInstallmentRoundTrips, threeInstallmentRoundTrips);
+  }
+}
@@ -1,29 +1,44 @@
 package dev.sami.creditmodule.service;
 
+import dev.sami.creditmodule.dto.LoanApplicationDTO;
+import dev.sami.creditmodule.dto.LoanBatchResultDTO;
 import dev.sami.creditmodule.dto.LoanDTO;
 import dev.sami.creditmodule.dto.LoanInstallmentDTO;
 import dev.sami.creditmodule.dto.PaidInstallmentsDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
 import dev.sami.creditmodule.dto.PaymentResultDTO;
 import dev.sami.creditmodule.entity.Loan;
-import dev.sami.creditmodule.entity.LoanInstallment;
+import dev.sami.creditmodule.mapper.LoanMapper;
 import dev.sami.creditmodule.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.transaction.support.TransactionOperations;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,7 +54,17 @@ class LoanServiceTest {
   private CustomerService customerService;
 
   @Mock
-  private ModelMapper modelMapper;
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Mock
+  private LoanMapper loanMapper;
+
+  @Spy
+  private OptimisticRetry optimisticRetry =
+      new OptimisticRetry(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 1, 0, 0);
+
+  @Spy
+  private CreditMetrics creditMetrics = new CreditMetrics(new SimpleMeterRegistry());
 
   @InjectMocks
   private LoanService loanService;
@@ -50,20 +75,13 @@ class LoanServiceTest {
                .customerId(1L)
                .loanAmount(BigDecimal.valueOf(1200.0))
                .numberOfInstallments(6)
+               .installmentAmount(BigDecimal.valueOf(200.0))
+               .paidInstallments(5)
+               .createDate(LocalDate.now())
                .isPaid(false)
                .build();
   }
 
-  private LoanInstallment createSampleInstallment(Long loanId, int monthOffset) {
-    return LoanInstallment.builder()
-                          .loanId(loanId)
-                          .amount(BigDecimal.valueOf(200.0))
-                          .paidAmount(BigDecimal.ZERO)
-                          .isPaid(false)
-                          .dueDate(LocalDate.now().plusMonths(monthOffset).withDayOfMonth(1))
-                          .build();
-  }
-
   @Test
   void testCreateLoan() {
     Long customerId = 1L;
@@ -80,17 +98,98 @@ class LoanServiceTest {
 
     LoanDTO loanDTO = new LoanDTO();
 
-    when(customerService.validateCreditLimit(customerId, BigDecimal.valueOf(144.0))).thenReturn(true);
+    when(customerService.reserveCredit(customerId, new BigDecimal("144.00"))).thenReturn(true);
     when(loanRepository.save(any(Loan.class))).thenReturn(loan);
-    when(modelMapper.map(loan, LoanDTO.class)).thenReturn(loanDTO);
+    when(loanMapper.toDto(loan)).thenReturn(loanDTO);
 
     LoanDTO result = loanService.createLoan(customerId, amount, interestRate, numberOfInstallments);
 
     assertEquals(loanDTO, result);
-    verify(customerService).validateCreditLimit(customerId, BigDecimal.valueOf(144.0));
-    verify(loanRepository).save(any(Loan.class));
-    verify(loanInstallmentService, times(numberOfInstallments))
-        .createInstallment(any(LoanInstallment.class));
+    verify(customerService).reserveCredit(customerId, new BigDecimal("144.00"));
+    verify(loanRepository).save(argThat(saved -> new BigDecimal("24.00").equals(saved.getInstallmentAmount())
+                                                 && saved.getPaidInstallments() == 0));
+    verify(customerPortfolioService).loansCreated(List.of(loan));
+    verifyNoInteractions(loanInstallmentService);
+  }
+
+  @Test
+  void testCreateLoanInsufficientCredit() {
+    Long customerId = 1L;
+    BigDecimal amount = BigDecimal.valueOf(120);
+
+    when(customerService.reserveCredit(customerId, new BigDecimal("144.00"))).thenReturn(false);
+
+    assertThrows(IllegalArgumentException.class, () -> loanService.createLoan(customerId, amount, 0.2, 6));
+    verify(loanRepository, never()).save(any(Loan.class));
+  }
+
+  @Test
+  void testCreateLoans() {
+    List<LoanApplicationDTO> applications = List.of(
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(120), 0.2, 6),
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(120), 0.9, 6),
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(100), 0.2, 12));
+    LoanDTO loanDTO = new LoanDTO();
+
+    when(customerService.getExistingCustomerIds(Set.of(1L))).thenReturn(Set.of(1L));
+    when(customerService.reserveCredit(1L, new BigDecimal("264.00"))).thenReturn(true);
+    when(loanRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(loanMapper.toDto(any(Loan.class))).thenReturn(loanDTO);
+
+    List<LoanBatchResultDTO> results = loanService.createLoans(applications);
+
+    assertEquals(3, results.size());
+    assertEquals(loanDTO, results.get(0).getLoan());
+    assertEquals("Interest rate must be between 0.1 and 0.5", results.get(1).getError());
+    assertEquals(loanDTO, results.get(2).getLoan());
+    verify(customerService).reserveCredit(1L, new BigDecimal("264.00"));
+    verify(loanRepository).saveAll(argThat(loans -> ((List<Loan>) loans).size() == 2));
+  }
+
+  @Test
+  void testCreateLoansReservesOneByOneWhenGroupExceedsLimit() {
+    List<LoanApplicationDTO> applications = List.of(
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(120), 0.2, 6),
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(100), 0.2, 6),
+        new LoanApplicationDTO(2L, BigDecimal.valueOf(100), 0.2, 6));
+
+    when(customerService.getExistingCustomerIds(Set.of(1L, 2L))).thenReturn(Set.of(1L));
+    when(customerService.reserveCredit(1L, new BigDecimal("264.00"))).thenReturn(false);
+    when(customerService.reserveCredit(1L, new BigDecimal("144.00"))).thenReturn(false);
+    when(customerService.reserveCredit(1L, new BigDecimal("120.00"))).thenReturn(true);
+    when(loanRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(loanMapper.toDto(any(Loan.class))).thenReturn(new LoanDTO());
+
+    List<LoanBatchResultDTO> results = loanService.createLoans(applications);
+
+    assertEquals("Customer does not have enough credit limit", results.get(0).getError());
+    assertNotNull(results.get(1).getLoan());
+    assertEquals("Customer not found", results.get(2).getError());
+    verify(customerService, never()).reserveCredit(eq(2L), any());
+    verify(loanRepository).saveAll(argThat(loans -> ((List<Loan>) loans).size() == 1));
+  }
+
+  @Test
+  void testCreateLoansReservesInCustomerIdOrder() {
+    List<LoanApplicationDTO> applications = List.of(
+        new LoanApplicationDTO(2L, BigDecimal.valueOf(100), 0.2, 6),
+        new LoanApplicationDTO(1L, BigDecimal.valueOf(100), 0.2, 6));
+    LoanDTO firstLoan = new LoanDTO();
+    LoanDTO secondLoan = new LoanDTO();
+
+    when(customerService.getExistingCustomerIds(Set.of(1L, 2L))).thenReturn(Set.of(1L, 2L));
+    when(customerService.reserveCredit(any(), any())).thenReturn(true);
+    when(loanRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(loanMapper.toDto(any(Loan.class))).thenAnswer(
+        invocation -> invocation.<Loan>getArgument(0).getCustomerId() == 2L ? firstLoan : secondLoan);
+
+    List<LoanBatchResultDTO> results = loanService.createLoans(applications);
+
+    InOrder reservations = inOrder(customerService);
+    reservations.verify(customerService).reserveCredit(1L, new BigDecimal("120.00"));
+    reservations.verify(customerService).reserveCredit(2L, new BigDecimal("120.00"));
+    assertSame(firstLoan, results.get(0).getLoan());
+    assertSame(secondLoan, results.get(1).getLoan());
   }
 
   @Test
@@ -100,8 +199,7 @@ class LoanServiceTest {
     List<LoanDTO> loanDTOs = List.of(new LoanDTO());
 
     when(loanRepository.findByCustomerId(customerId)).thenReturn(loans);
-    when(modelMapper.map(any(Loan.class), eq(LoanDTO.class)))
-        .thenReturn(new LoanDTO());
+    when(loanMapper.toDtos(loans)).thenReturn(loanDTOs);
 
     List<LoanDTO> result = loanService.getLoansByCustomer(customerId);
 
@@ -111,38 +209,65 @@ class LoanServiceTest {
 
   @Test
   void testGetInstallmentsByLoan() {
-    Long loanId = 1L;
-    List<LoanInstallment> installments = List.of(new LoanInstallment());
+    Loan loan = createSampleLoan();
     List<LoanInstallmentDTO> installmentDTOs = List.of(new LoanInstallmentDTO());
 
-    when(loanInstallmentService.getInstallmentsByLoan(loanId)).thenReturn(installments);
-    when(modelMapper.map(any(LoanInstallment.class), eq(LoanInstallmentDTO.class)))
-        .thenReturn(new LoanInstallmentDTO());
+    when(loanRepository.findById(loan.getId())).thenReturn(Optional.of(loan));
+    when(loanInstallmentService.getInstallments(loan)).thenReturn(installmentDTOs);
 
-    List<LoanInstallmentDTO> result = loanService.getInstallmentsByLoan(loanId);
+    List<LoanInstallmentDTO> result = loanService.getInstallmentsByLoan(loan.getId());
 
-    assertEquals(installmentDTOs.size(), result.size());
-    verify(loanInstallmentService).getInstallmentsByLoan(loanId);
+    assertEquals(installmentDTOs, result);
+    verify(loanInstallmentService).getInstallments(loan);
+  }
+
+  @Test
+  void testGetInstallmentsByUnknownLoan() {
+    when(loanRepository.findById(1L)).thenReturn(Optional.empty());
+
+    assertEquals(List.of(), loanService.getInstallmentsByLoan(1L));
   }
 
   @Test
   void testPayLoan() {
     Loan loan = createSampleLoan();
-    LoanInstallment installment = createSampleInstallment(loan.getId(), 1);
     BigDecimal paymentAmount = BigDecimal.valueOf(500);
+    PaidInstallmentsDTO paymentResponse = new PaidInstallmentsDTO(1, BigDecimal.valueOf(200.0));
 
-    List<LoanInstallment> unpaidInstallments = List.of(installment);
-    PaidInstallmentsDTO paymentResponse = new PaidInstallmentsDTO(1, paymentAmount);
-
-    when(loanRepository.findById(loan.getId())).thenReturn(Optional.of(loan));
-    when(loanInstallmentService.getPendingInstallments(loan.getId())).thenReturn(unpaidInstallments);
-    when(loanInstallmentService.payInstallments(anyList(), eq(paymentAmount)))
+    when(loanRepository.findUncachedById(loan.getId())).thenReturn(Optional.of(loan));
+    when(loanInstallmentService.payInstallments(eq(loan), eq(paymentAmount), any(LocalDate.class)))
         .thenReturn(paymentResponse);
 
     PaymentResultDTO result = loanService.payLoan(loan.getId(), paymentAmount);
 
     assertEquals(paymentResponse.getAmountSpent(), result.getTotalAmountPaid());
-    verify(loanRepository).findById(loan.getId());
-    verify(loanInstallmentService).payInstallments(anyList(), eq(paymentAmount));
+    assertTrue(result.isLoanFullyPaid());
+    verify(loanRepository).findUncachedById(loan.getId());
+    verify(loanInstallmentService).payInstallments(loan, paymentAmount, LocalDate.now().plusMonths(3));
+    verify(customerService).releaseCredit(loan.getCustomerId(), paymentResponse.getAmountSpent());
+    verify(customerPortfolioService).installmentsPaid(List.of(new CustomerPortfolioService.PaidInstallments(loan, 1)));
+  }
+
+  @Test
+  void testPayLoansReleasesCreditOncePerCustomer() {
+    Loan loan = createSampleLoan();
+    loan.setPaidInstallments(4);
+    Loan otherLoan = createSampleLoan();
+    otherLoan.setId(2L);
+    otherLoan.setPaidInstallments(4);
+    BigDecimal paymentAmount = BigDecimal.valueOf(200);
+
+    when(loanRepository.findUncachedById(loan.getId())).thenReturn(Optional.of(loan));
+    when(loanRepository.findUncachedById(otherLoan.getId())).thenReturn(Optional.of(otherLoan));
+    when(loanInstallmentService.payInstallments(any(Loan.class), eq(paymentAmount), any(LocalDate.class)))
+        .thenReturn(new PaidInstallmentsDTO(1, paymentAmount));
+
+    List<PaymentResultDTO> results = loanService.payLoans(List.of(new PaymentRequestDTO(loan.getId(), paymentAmount),
+                                                                  new PaymentRequestDTO(otherLoan.getId(), paymentAmount)));
+
+    assertEquals(2, results.size());
+    assertEquals(paymentAmount, results.get(1).getTotalAmountPaid());
+    assertFalse(results.get(1).isLoanFullyPaid());
+    verify(customerService).releaseCredit(loan.getCustomerId(), BigDecimal.valueOf(400));
   }
 }
@@ -0,0 +1,179 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.dto.LoanDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import dev.sami.creditmodule.support.QueryCounter;
+import dev.sami.creditmodule.support.QueryCountingConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Import(QueryCountingConfiguration.class)
+class LookupCacheTest {
+
+  @Autowired
+  private CustomerService customerService;
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  @Autowired
+  private QueryCounter queryCounter;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    customerId = customerRepository.save(Customer.builder()
+                                                 .name("Sami")
+                                                 .surname("Sahin")
+                                                 .creditLimit(BigDecimal.valueOf(100_000))
+                                                 .usedCreditLimit(BigDecimal.ZERO)
+                                                 .build())
+                                   .getId();
+  }
+
+  @Test
+  void getCustomerById_ShouldBeServedFromCacheUntilCreditChanges() {
+    customerService.getCustomerById(customerId);
+
+    queryCounter.reset();
+    customerService.getCustomerById(customerId);
+    assertEquals(0, queryCounter.getRoundTrips(), "cached lookup ran: " + queryCounter.getQueries());
+
+    customerService.reserveCredit(customerId, BigDecimal.valueOf(500));
+    CustomerDTO customer = customerService.getCustomerById(customerId);
+
+    assertEquals(0, BigDecimal.valueOf(500).compareTo(customer.getUsedCreditLimit()));
+  }
+
+  @Test
+  void updateCustomer_ShouldEvictCachedCustomer() {
+    CustomerDTO customer = customerService.getCustomerById(customerId);
+    customer.setName("Updated");
+    customerService.updateCustomer(customerId, customer);
+
+    assertEquals("Updated", customerService.getCustomerById(customerId).getName());
+  }
+
+  @Test
+  void deleteCustomer_ShouldEvictCachedCustomer() {
+    customerService.getCustomerById(customerId);
+    customerService.deleteCustomer(customerId);
+
+    assertThrows(RuntimeException.class, () -> customerService.getCustomerById(customerId));
+  }
+
+  @Test
+  void getInstallmentsByLoan_ShouldReadUnpaidLoanFromCache() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.getInstallmentsByLoan(loan.getId());
+
+    queryCounter.reset();
+    loanService.getInstallmentsByLoan(loan.getId());
+
+    assertEquals(0, queryCounter.getRoundTrips(), "cached lookup ran: " + queryCounter.getQueries());
+  }
+
+  @Test
+  void payLoans_ShouldReadLoanPaidEarlierInTheSameBatch() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.getInstallmentsByLoan(loan.getId());
+
+    List<PaymentResultDTO> results = loanService.payLoans(List.of(
+        new PaymentRequestDTO(loan.getId(), BigDecimal.valueOf(120)),
+        new PaymentRequestDTO(loan.getId(), BigDecimal.valueOf(120))));
+
+    assertEquals(1, results.get(0).getInstallmentsPaid());
+    assertEquals(1, results.get(1).getInstallmentsPaid());
+    assertEquals(2, loanRepository.findById(loan.getId()).orElseThrow().getPaidInstallments());
+  }
+
+  @Test
+  void payLoans_RolledBackBatchShouldNotLeaveLoanInCache() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+
+    assertThrows(RuntimeException.class, () -> loanService.payLoans(List.of(
+        new PaymentRequestDTO(loan.getId(), BigDecimal.valueOf(120)),
+        // too small to pay an installment, so it only reads the uncommitted loan back into the cache
+        new PaymentRequestDTO(loan.getId(), BigDecimal.valueOf(50)),
+        new PaymentRequestDTO(-1L, BigDecimal.valueOf(120)))));
+
+    assertEquals(0, loanRepository.findById(loan.getId()).orElseThrow().getPaidInstallments());
+    assertEquals(1, loanService.payLoan(loan.getId(), BigDecimal.valueOf(120)).getInstallmentsPaid());
+  }
+
+  @Test
+  void payLoan_ShouldSettleAgainstTheLoanInTheDatabase() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    loanService.getInstallmentsByLoan(loan.getId());
+    // changed behind the cache, which still holds the unpaid loan at its old version
+    jdbcTemplate.update("update loan set paid_installments = 1, version = version + 1 where id = ?", loan.getId());
+
+    PaymentResultDTO result = loanService.payLoan(loan.getId(), BigDecimal.valueOf(120));
+
+    assertEquals(1, result.getInstallmentsPaid());
+    assertEquals(2, loanRepository.findUncachedById(loan.getId()).orElseThrow().getPaidInstallments());
+  }
+
+  @Test
+  void getLoanVersion_ShouldNotTrustCachedLoan() {
+    LoanDTO loan = loanService.createLoan(customerId, BigDecimal.valueOf(600), 0.2, 6);
+    long cachedVersion = loanRepository.findById(loan.getId()).orElseThrow().getVersion();
+    jdbcTemplate.update("update loan set paid_installments = 1, version = version + 1 where id = ?", loan.getId());
+
+    long version = loanService.getLoanVersion(loan.getId()).orElseThrow();
+
+    assertEquals(cachedVersion + 1, version);
+    assertTrue(loanService.getInstallmentsByLoan(loan.getId(), version).get(0).getIsPaid());
+  }
+
+  @Test
+  void getInstallmentsByLoan_ShouldNotCacheMissingLoan() {
+    loanService.getInstallmentsByLoan(-1L);
+
+    queryCounter.reset();
+    loanService.getInstallmentsByLoan(-1L);
+
+    assertEquals(1, queryCounter.getRoundTrips());
+  }
+
+  @Test
+  void caches_ShouldPublishHitAndMissMetrics() {
+    customerService.getCustomerById(customerId);
+    customerService.getCustomerById(customerId);
+
+    assertNotNull(meterRegistry.find("cache.gets").tags("cache", "customers", "result", "hit").functionCounter());
+    assertNotNull(meterRegistry.find("cache.gets").tags("cache", "loans", "result", "miss").functionCounter());
+    assertNotNull(meterRegistry.find("cache.evictions").tags("cache", "customers").functionCounter());
+  }
+}
@@ -0,0 +1,55 @@
+package dev.sami.creditmodule.service;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+  @Test
+  void fromAmount_ShouldRoundHalfUpAndFromPaymentShouldTruncate() {
+    assertEquals(100_01, Money.fromAmount(new BigDecimal("100.005")));
+    assertEquals(100_00, Money.fromPayment(new BigDecimal("100.009")));
+    assertEquals(new BigDecimal("100.01"), Money.toAmount(100_01));
+  }
+
+  @Test
+  void installment_ShouldSplitTheExactTotalWithInterest() {
+    long principal = Money.fromAmount(new BigDecimal("1000"));
+    long rate = Money.rate(0.1);
+
+    long total = Money.totalWithInterest(principal, rate);
+    long installment = Money.installment(principal, rate, 24);
+
+    assertEquals(1100_00, total);
+    // 1100 / 24 = 45.8333...
+    assertEquals(45_83, installment);
+    assertEquals(1099_92, Money.settled(installment, 24));
+  }
+
+  @Test
+  void installment_ShouldRoundHalfUpOnce() {
+    // 100.10 * 1.15 = 115.115, / 6 = 19.185833...
+    long principal = Money.fromAmount(new BigDecimal("100.10"));
+
+    assertEquals(115_12, Money.totalWithInterest(principal, Money.rate(0.15)));
+    assertEquals(19_19, Money.installment(principal, Money.rate(0.15), 6));
+  }
+
+  @Test
+  void coveredInstallments_ShouldCountFullyCoveredPayableInstallments() {
+    assertEquals(2, Money.coveredInstallments(250_00, 100_00, 6));
+    assertEquals(3, Money.coveredInstallments(1000_00, 100_00, 3));
+    assertEquals(0, Money.coveredInstallments(99_99, 100_00, 6));
+    assertEquals(0, Money.coveredInstallments(-100_00, 100_00, 6));
+    assertEquals(6, Money.coveredInstallments(0, 0, 6));
+  }
+
+  @Test
+  void settled_ShouldFailInsteadOfOverflowing() {
+    assertThrows(ArithmeticException.class, () -> Money.settled(Long.MAX_VALUE / 2, 24));
+    assertThrows(ArithmeticException.class, () -> Money.installment(Long.MAX_VALUE / 2, Money.rate(0.5), 6));
+  }
+}
@@ -0,0 +1,138 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.config.CacheConfig;
+import dev.sami.creditmodule.dto.CustomerDTO;
+import dev.sami.creditmodule.entity.Customer;
+import dev.sami.creditmodule.entity.Loan;
+import dev.sami.creditmodule.repository.CustomerRepository;
+import dev.sami.creditmodule.repository.LoanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class OptimisticLockingTest {
+
+  @Autowired
+  private LoanService loanService;
+
+  @Autowired
+  private CustomerService customerService;
+
+  @Autowired
+  private CustomerPortfolioService customerPortfolioService;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private LoanRepository loanRepository;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Long customerId;
+
+  @BeforeEach
+  void setUp() {
+    customerId = customerRepository.save(Customer.builder()
+                                                 .name("Sami")
+                                                 .surname("Sahin")
+                                                 .creditLimit(BigDecimal.valueOf(100_000))
+                                                 .usedCreditLimit(BigDecimal.ZERO)
+                                                 .build())
+                                   .getId();
+  }
+
+  @Test
+  void reserveCredit_ShouldFailLaterSaveOfCustomerReadBeforeIt() {
+    Customer stale = customerRepository.findById(customerId).orElseThrow();
+    customerService.reserveCredit(customerId, BigDecimal.valueOf(500));
+
+    stale.setName("Updated");
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> customerRepository.save(stale));
+  }
+
+  @Test
+  void updateCustomer_ShouldKeepReservedCredit() {
+    CustomerDTO customer = customerService.getCustomerById(customerId);
+    customerService.reserveCredit(customerId, BigDecimal.valueOf(500));
+    customer.setName("Updated");
+
+    CustomerDTO updated = customerService.updateCustomer(customerId, customer);
+
+    assertEquals("Updated", updated.getName());
+    assertEquals(0, BigDecimal.valueOf(500).compareTo(updated.getUsedCreditLimit()));
+  }
+
+  @Test
+  void payLoan_ShouldNotPayAgainstStaleCachedLoan() {
+    Loan loan = createOverdueLoan(6);
+    Loan stale = loanRepository.findById(loan.getId()).orElseThrow();
+    loanService.payLoan(loan.getId(), BigDecimal.valueOf(120));
+    double conflicts = meterRegistry.counter("credit.optimistic.conflicts", "operation", "payLoan").count();
+
+    // a lookup that read the loan before the first payment cached it after that payment's eviction
+    cacheManager.getCache(CacheConfig.LOANS).put(loan.getId(), stale);
+
+    assertEquals(1, loanService.payLoan(loan.getId(), BigDecimal.valueOf(120)).getInstallmentsPaid());
+    assertEquals(2, loanRepository.findUncachedById(loan.getId()).orElseThrow().getPaidInstallments());
+    assertEquals(conflicts, meterRegistry.counter("credit.optimistic.conflicts", "operation", "payLoan").count());
+  }
+
+  @Test
+  void payLoan_ConcurrentPaymentsShouldAllBeApplied() throws Exception {
+    Loan loan = createOverdueLoan(12);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<?>> payments = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        payments.add(executor.submit(() -> loanService.payLoan(loan.getId(), BigDecimal.valueOf(120))));
+      }
+      for (Future<?> payment : payments) {
+        payment.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(3, loanRepository.findById(loan.getId()).orElseThrow().getPaidInstallments());
+    assertEquals(0, BigDecimal.valueOf(1080).compareTo(
+        customerRepository.findById(customerId).orElseThrow().getUsedCreditLimit()));
+  }
+
+  private Loan createOverdueLoan(int numberOfInstallments) {
+    BigDecimal installmentAmount = new BigDecimal("120.00");
+    BigDecimal loanAmount = installmentAmount.multiply(BigDecimal.valueOf(numberOfInstallments));
+    customerService.reserveCredit(customerId, loanAmount);
+    Loan loan = loanRepository.save(Loan.builder()
+                                        .customerId(customerId)
+                                        .loanAmount(loanAmount)
+                                        .numberOfInstallments(numberOfInstallments)
+                                        .installmentAmount(installmentAmount)
+                                        .paidInstallments(0)
+                                        .createDate(LocalDate.now().minusYears(2))
+                                        .isPaid(false)
+                                        .build());
+    customerPortfolioService.loansCreated(List.of(loan));
+    return loan;
+  }
+}
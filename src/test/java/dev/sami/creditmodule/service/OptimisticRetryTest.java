@@ -0,0 +1,69 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.entity.Loan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private OptimisticRetry optimisticRetry;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction(), meterRegistry, 3, 1, 2);
+  }
+
+  @Test
+  void testConflictIsRetried() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result = optimisticRetry.execute("pay", () -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new ObjectOptimisticLockingFailureException(Loan.class, 1L);
+      }
+      return "paid";
+    });
+
+    assertEquals("paid", result);
+    assertEquals(3, attempts.get());
+    assertEquals(2, meterRegistry.counter("credit.optimistic.conflicts", "operation", "pay").count());
+    assertEquals(2, meterRegistry.counter("credit.optimistic.retries", "operation", "pay").count());
+  }
+
+  @Test
+  void testConflictIsRethrownAfterLastAttempt() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> optimisticRetry.execute("pay", () -> {
+      attempts.incrementAndGet();
+      throw new ObjectOptimisticLockingFailureException(Loan.class, 1L);
+    }));
+
+    assertEquals(3, attempts.get());
+    assertEquals(3, meterRegistry.counter("credit.optimistic.conflicts", "operation", "pay").count());
+    assertEquals(2, meterRegistry.counter("credit.optimistic.retries", "operation", "pay").count());
+  }
+
+  @Test
+  void testOtherFailuresAreNotRetried() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(IllegalArgumentException.class, () -> optimisticRetry.execute("pay", () -> {
+      attempts.incrementAndGet();
+      throw new IllegalArgumentException("Loan not found");
+    }));
+
+    assertEquals(1, attempts.get());
+    assertEquals(0, meterRegistry.counter("credit.optimistic.conflicts", "operation", "pay").count());
+  }
+}
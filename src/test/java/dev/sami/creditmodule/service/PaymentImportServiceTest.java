@@ -0,0 +1,175 @@
+package dev.sami.creditmodule.service;
+
+import dev.sami.creditmodule.dto.PaymentImportReportDTO;
+import dev.sami.creditmodule.dto.PaymentRequestDTO;
+import dev.sami.creditmodule.dto.PaymentResultDTO;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentImportServiceTest {
+
+  @Mock
+  private LoanService loanService;
+
+  private PaymentImportService paymentImportService;
+
+  private final List<PaymentRequestDTO> appliedPayments = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeEach
+  void setUp() {
+    paymentImportService = new PaymentImportService(loanService, Executors.defaultThreadFactory(), 4, 3, 8);
+    lenient().when(loanService.getCustomerIds(anyCollection())).thenAnswer(invocation -> {
+      Collection<Long> loanIds = invocation.getArgument(0);
+      return loanIds.stream().collect(Collectors.toMap(loanId -> loanId, loanId -> loanId % 3));
+    });
+    lenient().when(loanService.payLoans(anyList())).thenAnswer(invocation -> {
+      List<PaymentRequestDTO> payments = invocation.getArgument(0);
+      appliedPayments.addAll(payments);
+      return payments.stream().map(payment -> new PaymentResultDTO(1, payment.getAmount(), false)).toList();
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    paymentImportService.stop();
+  }
+
+  private InputStream csv(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testImportCsv() {
+    PaymentImportReportDTO report =
+        paymentImportService.importCsv(csv("loanId,amount\n1,100.00\n2,50.50\n\nnot-a-line\n3,25\n"));
+
+    assertEquals(4, report.getRecordsRead());
+    assertEquals(3, report.getPaymentsApplied());
+    assertEquals(1, report.getPaymentsRejected());
+    assertEquals(3, report.getInstallmentsPaid());
+    assertEquals(0, new BigDecimal("175.50").compareTo(report.getTotalAmountPaid()));
+    assertEquals(List.of("Record 5: Malformed payment line"), report.getErrors());
+  }
+
+  @Test
+  void testImportCsvKeepsPaymentOrderPerLoan() {
+    StringBuilder content = new StringBuilder();
+    for (int i = 1; i <= 200; i++) {
+      content.append(i % 7).append(',').append(i).append('\n');
+    }
+
+    PaymentImportReportDTO report = paymentImportService.importCsv(csv(content.toString()));
+
+    assertEquals(200, report.getPaymentsApplied());
+    for (long loanId = 0; loanId < 7; loanId++) {
+      long id = loanId;
+      List<Integer> amounts = appliedPayments.stream()
+                                             .filter(payment -> payment.getLoanId() == id)
+                                             .map(payment -> payment.getAmount().intValue())
+                                             .toList();
+      List<Integer> sorted = new ArrayList<>(amounts);
+      Collections.sort(sorted);
+      assertEquals(sorted, amounts);
+    }
+  }
+
+  @Test
+  void testImportCsvAppliesPaymentsOfOneCustomerOnOneWorker() {
+    Map<Long, Set<String>> workersByCustomer = new ConcurrentHashMap<>();
+    doAnswer(invocation -> {
+      List<PaymentRequestDTO> payments = invocation.getArgument(0);
+      payments.forEach(payment -> workersByCustomer.computeIfAbsent(payment.getLoanId() % 3,
+                                                                    customerId -> ConcurrentHashMap.newKeySet())
+                                                   .add(Thread.currentThread().getName()));
+      return payments.stream().map(payment -> new PaymentResultDTO(1, payment.getAmount(), false)).toList();
+    }).when(loanService).payLoans(anyList());
+    StringBuilder content = new StringBuilder();
+    for (int i = 1; i <= 200; i++) {
+      content.append(i % 7).append(',').append(i).append('\n');
+    }
+
+    PaymentImportReportDTO report = paymentImportService.importCsv(csv(content.toString()));
+
+    assertEquals(200, report.getPaymentsApplied());
+    assertEquals(3, workersByCustomer.size());
+    workersByCustomer.values().forEach(workers -> assertEquals(1, workers.size()));
+  }
+
+  @Test
+  void testImportCsvFailsWhenWorkerDies() {
+    when(loanService.payLoans(anyList())).thenThrow(new OutOfMemoryError("Worker died"));
+    StringBuilder content = new StringBuilder();
+    for (int i = 1; i <= 1000; i++) {
+      content.append(i).append(",10\n");
+    }
+
+    RuntimeException error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(
+        RuntimeException.class, () -> paymentImportService.importCsv(csv(content.toString()))));
+
+    assertEquals("Worker died", error.getCause().getMessage());
+  }
+
+  @Test
+  void testImportCsvReplaysFailedChunkPaymentByPayment() {
+    when(loanService.payLoans(anyList())).thenThrow(new RuntimeException("Loan not found"));
+    when(loanService.payLoan(any(), any())).thenAnswer(invocation -> {
+      if (invocation.<Long>getArgument(0) == 99L) {
+        throw new RuntimeException("Loan not found");
+      }
+      return new PaymentResultDTO(2, invocation.getArgument(1), true);
+    });
+
+    PaymentImportReportDTO report = paymentImportService.importCsv(csv("1,10\n99,10\n5,10\n"));
+
+    assertEquals(2, report.getPaymentsApplied());
+    assertEquals(1, report.getPaymentsRejected());
+    assertEquals(4, report.getInstallmentsPaid());
+    assertEquals(2, report.getLoansFullyPaid());
+    assertEquals(List.of("Record 2: Loan not found"), report.getErrors());
+  }
+
+  @Test
+  void testImportBinary() {
+    ByteBuffer buffer = ByteBuffer.allocate(2 * PaymentImportService.BINARY_RECORD_SIZE + 3);
+    buffer.putLong(1L).putLong(12_345L).putLong(2L).putLong(100L).put(new byte[3]);
+
+    PaymentImportReportDTO report = paymentImportService.importBinary(new ByteArrayInputStream(buffer.array()));
+
+    assertEquals(3, report.getRecordsRead());
+    assertEquals(2, report.getPaymentsApplied());
+    assertEquals(1, report.getPaymentsRejected());
+    assertEquals(0, new BigDecimal("124.45").compareTo(report.getTotalAmountPaid()));
+    assertTrue(appliedPayments.contains(new PaymentRequestDTO(1L, new BigDecimal("123.45"))));
+  }
+}
@@ -0,0 +1,57 @@
+package dev.sami.creditmodule.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Counts JDBC executions going through the proxied DataSource. A round trip is one
+ * {@code execute*} call, so a JDBC batch counts once no matter how many rows it carries.
+ */
+public class QueryCounter implements QueryExecutionListener {
+
+  private int roundTrips;
+
+  private int statements;
+
+  private final List<String> queries = new ArrayList<>();
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public synchronized void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    roundTrips++;
+    statements += execInfo.isBatch() ? execInfo.getBatchSize() : queryInfoList.size();
+    queryInfoList.forEach(queryInfo -> queries.add(queryInfo.getQuery()));
+  }
+
+  public synchronized void reset() {
+    roundTrips = 0;
+    statements = 0;
+    queries.clear();
+  }
+
+  public synchronized int getRoundTrips() {
+    return roundTrips;
+  }
+
+  public synchronized int getStatements() {
+    return statements;
+  }
+
+  /**
+   * Round trips excluding id sequence fetches, which the pooled allocators amortize
+   * across many inserts and therefore show up only every so often.
+   */
+  public synchronized int getRoundTripsExcludingSequences() {
+    return roundTrips - (int) queries.stream().filter(query -> query.startsWith("select next value for")).count();
+  }
+
+  public synchronized List<String> getQueries() {
+    return List.copyOf(queries);
+  }
+}
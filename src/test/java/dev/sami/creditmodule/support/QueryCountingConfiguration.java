@@ -0,0 +1,32 @@
+package dev.sami.creditmodule.support;
+
+import javax.sql.DataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@TestConfiguration(proxyBeanMethods = false)
+public class QueryCountingConfiguration {
+
+  @Bean
+  static QueryCounter queryCounter() {
+    return new QueryCounter();
+  }
+
+  @Bean
+  static BeanPostProcessor queryCountingDataSourcePostProcessor(QueryCounter queryCounter) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+          return ProxyDataSourceBuilder.create(dataSource)
+                                       .name(beanName)
+                                       .listener(queryCounter)
+                                       .build();
+        }
+        return bean;
+      }
+    };
+  }
+}